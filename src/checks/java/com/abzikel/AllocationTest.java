@@ -0,0 +1,66 @@
+package com.abzikel;
+
+import com.abzikel.engine.GameEngine;
+import com.abzikel.loop.CourseStream;
+import com.abzikel.pojos.GameSnapshot;
+import com.abzikel.render.GameRenderer;
+import com.abzikel.tools.JumpPolicy;
+import com.abzikel.utils.AssetService;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+// Steady-state ticks and frames must not allocate, run by the allocationTest task as part of check
+public class AllocationTest {
+    private static final int WARMUP_FRAMES = 8_000;
+    private static final int MEASURED_FRAMES = 5_000;
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Render offscreen with the same sprites the game draws, an endless game never finishes mid-measurement
+        BufferedImage frame = new BufferedImage(GameEngine.WIDTH, GameEngine.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = frame.createGraphics();
+        GameRenderer renderer = new GameRenderer(AssetService.getInstance().getSpriteCache(null),
+                TimeUnit.MILLISECONDS.toNanos(20));
+
+        // Chunks are built on a background thread as in GameWindow, the inline generator allocates every chunk
+        CourseStream course = new CourseStream("AllocationTest-Course", 8);
+        GameEngine engine = new GameEngine(0, AssetService.getInstance().getCollisionMasks(), SEED, course);
+        GameSnapshot snapshot = engine.createSnapshot();
+        JumpPolicy policy = JumpPolicy.atDistance(130);
+
+        // Warm-up loads every sprite and lets the JIT compile the frame path
+        run(engine, snapshot, renderer, graphics, policy, WARMUP_FRAMES);
+
+        // Java2D grows its glyph buffers the first time a longer score is drawn, size them for the longest one
+        snapshot.obstaclesDodged = Integer.MAX_VALUE;
+        renderer.render(graphics, snapshot, 0.5f);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        run(engine, snapshot, renderer, graphics, policy, MEASURED_FRAMES);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        graphics.dispose();
+
+        if (engine.isFinished()) throw new AssertionError("The bot game ended before the measurement finished");
+        if (course.getStalls() > 0) throw new AssertionError(course.getStalls() + " chunks kept the frame path waiting");
+        if (allocated != 0) {
+            throw new AssertionError(allocated + " bytes allocated over " + MEASURED_FRAMES + " steady-state frames");
+        }
+        System.out.println("AllocationTest passed: 0 bytes allocated over " + MEASURED_FRAMES + " frames");
+    }
+
+    private static void run(GameEngine engine, GameSnapshot snapshot, GameRenderer renderer, Graphics2D graphics,
+                            JumpPolicy policy, int frames) {
+        for (int tick = 0; tick < frames; tick++) {
+            engine.step(policy.decide(engine));
+            engine.writeSnapshot(snapshot);
+            renderer.render(graphics, snapshot, 0.5f);
+        }
+    }
+
+}
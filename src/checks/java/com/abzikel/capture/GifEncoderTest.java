@@ -0,0 +1,123 @@
+package com.abzikel.capture;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// A GIF output that fails mid-capture must not leave encoder threads, the producer or close() waiting forever
+public class GifEncoderTest {
+    private static final int WIDTH = 64, HEIGHT = 48;
+    // Beyond the encoder's MAX_PENDING, so frames are always parked waiting for their turn
+    private static final int IN_FLIGHT = 40;
+    private static final long TIMEOUT_MILLIS = 20_000;
+    // The injected write error is expected, keep its warning out of the build output
+    private static final Logger captureLogger = Logger.getLogger(FrameCapture.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        captureLogger.setLevel(Level.SEVERE);
+        BufferedImage[] frames = new BufferedImage[8];
+        Random random = new Random(42);
+        for (int index = 0; index < frames.length; index++) {
+            frames[index] = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) frames[index].setRGB(x, y, random.nextInt());
+            }
+        }
+
+        parkedFrameGivesUp(frames[0]);
+        captureFinishes(frames);
+        System.out.println("GifEncoderTest passed: a failing writer never hangs the capture");
+    }
+
+    // A frame waiting far ahead of the next one to write is released when that write fails
+    private static void parkedFrameGivesUp(BufferedImage frame) throws Exception {
+        GifEncoder encoder = new GifEncoder(new FailingOutput(0), WIDTH, HEIGHT, 33);
+        AtomicReference<Throwable> parkedResult = new AtomicReference<>();
+        Thread parked = new Thread(() -> {
+            try {
+                encoder.encode(IN_FLIGHT, frame);
+            } catch (Throwable e) {
+                parkedResult.set(e);
+            }
+        });
+        parked.setDaemon(true);
+        parked.start();
+        while (parked.getState() != Thread.State.WAITING) Thread.sleep(1);
+
+        try {
+            encoder.encode(0, frame);
+            throw new AssertionError("Writing to a failing output succeeded");
+        } catch (IOException expected) {
+            // The first frame cannot be written
+        }
+        parked.join(TIMEOUT_MILLIS);
+        if (parked.isAlive()) throw new AssertionError("Frame " + IN_FLIGHT + " still waits for a frame that failed");
+        if (!(parkedResult.get() instanceof IOException)) {
+            throw new AssertionError("The parked frame ended with " + parkedResult.get());
+        }
+        encoder.close();
+    }
+
+    // Several encoder threads, more buffers than the encoder keeps pending and a writer that fails after a few frames
+    private static void captureFinishes(BufferedImage[] frames) throws Exception {
+        GifEncoder encoder = new GifEncoder(new FailingOutput(5 * WIDTH * HEIGHT), WIDTH, HEIGHT, 33);
+        FrameCapture capture = new FrameCapture(encoder, WIDTH, HEIGHT, IN_FLIGHT, 4, FrameCapture.Policy.BLOCK);
+        AtomicReference<Throwable> closeResult = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            try {
+                for (int index = 0; index < 2_000; index++) {
+                    FrameCapture.Frame frame = capture.acquire();
+                    if (frame == null) throw new AssertionError("No buffer for frame " + index);
+                    frame.image.getRaster().setRect(frames[index % frames.length].getRaster());
+                    capture.submit(frame);
+                }
+                capture.close();
+            } catch (Throwable e) {
+                closeResult.set(e);
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+        producer.join(TIMEOUT_MILLIS);
+        if (producer.isAlive()) throw new AssertionError("The capture hung after its writer failed");
+        if (!(closeResult.get() instanceof IOException)) {
+            throw new AssertionError("Closing the capture ended with " + closeResult.get());
+        }
+    }
+
+    // Accepts the GIF header and the given number of bytes after it, then fails every write
+    private static class FailingOutput extends ImageOutputStreamImpl {
+        private static final int HEADER_BYTES = 1024;
+        private final long limit;
+
+        FailingOutput(long frameBytes) {
+            limit = HEADER_BYTES + frameBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (streamPos + len > limit) throw new IOException("Disk full");
+            streamPos += len;
+        }
+
+        @Override
+        public int read() {
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.abzikel.benchmarks;
+
+import com.abzikel.utils.AssetService;
+import com.abzikel.utils.ImageUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class AssetLoadingBenchmark {
+
+    @State(Scope.Thread)
+    public static class Cold {
+        @Setup(Level.Invocation)
+        public void clear() {
+            // Drop every decoded image so each invocation decodes from the PNG files
+            AssetService.getInstance().clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Warm {
+        @Setup(Level.Trial)
+        public void load() {
+            ImageUtil.loadSprites(new ArrayList<>(), 20, "Run");
+        }
+    }
+
+    @Benchmark
+    public List<Image> loadSpritesCold(Cold cold) {
+        List<Image> sprites = new ArrayList<>();
+        ImageUtil.loadSprites(sprites, 20, "Run");
+        return sprites;
+    }
+
+    @Benchmark
+    public List<Image> loadSpritesWarm(Warm warm) {
+        List<Image> sprites = new ArrayList<>();
+        ImageUtil.loadSprites(sprites, 20, "Run");
+        return sprites;
+    }
+
+}
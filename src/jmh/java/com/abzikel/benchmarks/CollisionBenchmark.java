@@ -0,0 +1,37 @@
+package com.abzikel.benchmarks;
+
+import com.abzikel.engine.GameEngine;
+import com.abzikel.utils.AssetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    private static final long SEED = 42;
+    @Param({"1", "10", "100", "1000"})
+    public int obstacles;
+    private GameEngine engine;
+
+    @Setup
+    public void setUp() {
+        engine = new GameEngine(0, AssetService.getInstance().getCollisionMasks(), SEED);
+
+        // Spread the obstacles ahead of the character, one of them right under it
+        engine.spawnObstacle(GameEngine.CHARACTER_X + 10);
+        for (int index = 1; index < obstacles; index++) {
+            engine.spawnObstacle(GameEngine.WIDTH + index * 120);
+        }
+    }
+
+    @Benchmark
+    public boolean checkCollision() {
+        return engine.isColliding();
+    }
+
+}
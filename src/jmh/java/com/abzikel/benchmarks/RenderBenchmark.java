@@ -0,0 +1,52 @@
+package com.abzikel.benchmarks;
+
+import com.abzikel.engine.GameEngine;
+import com.abzikel.engine.Input;
+import com.abzikel.pojos.GameSnapshot;
+import com.abzikel.render.GameRenderer;
+import com.abzikel.utils.AssetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    private static final long SEED = 42;
+    private BufferedImage frame;
+    private Graphics2D graphics;
+    private GameRenderer renderer;
+    private GameSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        // Render offscreen so the benchmark also runs without a display
+        frame = new BufferedImage(GameEngine.WIDTH, GameEngine.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = frame.createGraphics();
+        renderer = new GameRenderer(AssetService.getInstance().getSpriteCache(null), TimeUnit.MILLISECONDS.toNanos(20));
+
+        // Advance a few ticks so clouds and the obstacle are spread over the screen
+        GameEngine engine = new GameEngine(0, AssetService.getInstance().getCollisionMasks(), SEED);
+        for (int tick = 0; tick < 30; tick++) engine.step(Input.NONE);
+        snapshot = engine.createSnapshot();
+        engine.writeSnapshot(snapshot);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage frame() {
+        renderer.render(graphics, snapshot, 0.5f);
+        return frame;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.abzikel.benchmarks;
+
+import com.abzikel.engine.CollisionMasks;
+import com.abzikel.engine.GameEngine;
+import com.abzikel.engine.Input;
+import com.abzikel.utils.AssetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    private static final long SEED = 42;
+    private CollisionMasks collisionMasks;
+    private GameEngine engine;
+
+    @Setup
+    public void setUp() {
+        collisionMasks = AssetService.getInstance().getCollisionMasks();
+        engine = new GameEngine(0, collisionMasks, SEED);
+    }
+
+    @Benchmark
+    public GameEngine tick() {
+        // Jump right before each obstacle so the run goes on, start a new one if it ends anyway
+        int distance = engine.distanceToNextObstacle();
+        engine.step(distance >= 80 && distance < 100 ? Input.JUMP : Input.NONE);
+        if (engine.isFinished()) engine = new GameEngine(0, collisionMasks, SEED);
+        return engine;
+    }
+
+}
@@ -1,195 +1,689 @@
 package com.abzikel;
 
-import com.abzikel.pojos.Cloud;
-import com.abzikel.pojos.Obstacle;
+import com.abzikel.capture.FrameCapture;
+import com.abzikel.capture.FrameEncoder;
+import com.abzikel.engine.GameEngine;
+import com.abzikel.engine.Input;
+import com.abzikel.engine.InputLog;
+import com.abzikel.loop.CourseStream;
+import com.abzikel.loop.GameLoop;
+import com.abzikel.loop.InputBuffer;
+import com.abzikel.loop.SnapshotBuffer;
+import com.abzikel.loop.TimingWheel;
+import com.abzikel.net.GhostClient;
+import com.abzikel.net.GhostHost;
+import com.abzikel.pojos.GameSnapshot;
+import com.abzikel.pojos.GhostState;
+import com.abzikel.pojos.InputEvent;
+import com.abzikel.pojos.RunResult;
+import com.abzikel.render.ActiveCanvas;
+import com.abzikel.render.GameRenderer;
+import com.abzikel.render.ScaledFramebuffer;
+import com.abzikel.render.StatsOverlay;
+import com.abzikel.stats.FrameStats;
+import com.abzikel.stats.ScoreStore;
+import com.abzikel.utils.AssetService;
 import com.abzikel.utils.CursorUtil;
-import com.abzikel.utils.ImageUtil;
+import com.abzikel.utils.GameSettings;
+import com.abzikel.utils.SpriteCache;
+import com.abzikel.utils.UiScheduler;
+import com.abzikel.utils.WindowUtil;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.AffineTransform;
-import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class GameWindow extends JFrame {
-    private static final int WIDTH = 800;
-    private static final int HEIGHT = 600;
-    private static final int GROUND = 512;
-    private static final int FEET = 400;
-    private final List<Image> runSprites = new ArrayList<>();
-    private final List<Image> jumpSprites = new ArrayList<>();
-    private final List<Image> deathSprites = new ArrayList<>();
-    private final List<Cloud> clouds = new ArrayList<>();
-    private final List<Obstacle> obstacles = new ArrayList<>();
-    private final Image background, obstacleImage;
-    private TexturePaint texturePaint;
-    private final int obstacleCount;
-    private int backgroundPosition, nextBackgroundPosition;
-    private int currentFrame = 0;
-    private int characterPositionAxisY;
-    private int jumpVelocity = 0;
-    private int obstaclesDodged = 0;
-    private boolean isJumping = false;
-    private boolean isGameOver = false;
-
-    public GameWindow(int obstacleCount) {
+    private static final int WIDTH = GameEngine.WIDTH;
+    private static final int HEIGHT = GameEngine.HEIGHT;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    private static final String PAUSED_TEXT = "Paused";
+    private static final Font PAUSED_FONT = new Font("Arial", Font.BOLD, 36);
+    private static final Color PAUSED_COLOR = new Color(0, 0, 0, 96);
+    private static final int CAPTURE_BUFFERS = 8;
+    // How long a new game waits for the ghost race host to tell it the course
+    private static final long RACE_JOIN_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final Logger logger = Logger.getLogger(GameWindow.class.getName());
+    private final SpriteCache spriteCache;
+    private final GameRenderer renderer;
+    private final InputBuffer inputBuffer = new InputBuffer(64);
+    private final InputEvent inputEvent = new InputEvent();
+    private final CourseStream courseStream = new CourseStream("CuteRunner-Course", 8);
+    private final GameEngine engine;
+    private final SnapshotBuffer<GameSnapshot> snapshots;
+    private final GameLoop gameLoop;
+    private final Component gamePanel;
+    private final FrameStats frameStats = new FrameStats();
+    private final StatsOverlay statsOverlay = new StatsOverlay(frameStats);
+    private final ScaledFramebuffer framebuffer;
+    private final ScoreStore scoreStore = openScoreStore();
+    private final GhostState ghostState = new GhostState();
+    private volatile GhostHost ghostHost;
+    private volatile GhostClient ghostClient; // Dropped by the game loop when the connection is lost
+    private final Consumer<Graphics> scenePainter = this::paintScene;
+    private final Rectangle dirtyArea = new Rectangle();
+    private final TimingWheel.Entry cursorRevert;
+    private InputLog inputLog;
+    private volatile FrameCapture capture;
+    private long capturedTick; // Latest tick already captured, only touched by the paint code
+    private InputLog.Cursor replay;
+    private int obstacleCount;
+    private volatile CompletableFuture<Void> pendingWrites = CompletableFuture.completedFuture(null);
+    private volatile long repaintRequestTime;
+    private volatile boolean sessionActive; // Cleared by the game loop as soon as the game ends
+    private volatile boolean paused;        // Minimized or unfocused mid-game, set on the EDT
+    private int renderedDeathFrame;         // Only touched by the game loop
+    private boolean ghostsShown;            // Only touched by the game loop
+    private long jumpInputTime;      // Key event behind the latest jump, only touched by the game loop
+    private long shownJumpInputTime; // Latest jump already measured on screen, only touched by the paint code
+    private long lastRenderNanos;
+    private int startRequest; // Latest startSession or close, only touched by the EDT
+
+    // The window is built once and every game is a new session in it, see startSession
+    public GameWindow() {
         // Window configuration
         setTitle("Cute Runner - Game");
-        setSize(WIDTH, HEIGHT);
-        setResizable(false);
-        setMinimumSize(new Dimension(WIDTH, HEIGHT));
+        WindowUtil.configure(this, WIDTH, HEIGHT);
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        setLocationRelativeTo(null);
 
-        // Initialize obstacle count
-        this.obstacleCount = obstacleCount;
-
-        // Load images
-        background = ImageUtil.loadImage("/images/background_game.png");
-        obstacleImage = ImageUtil.loadImage("/images/obstacle.png");
-
-        // Load sprites
-        ImageUtil.loadSprites(runSprites, 20, "Run");
-        ImageUtil.loadSprites(jumpSprites, 30, "Jump");
-        ImageUtil.loadSprites(deathSprites, 30, "Dead");
-
-        // Initialize character position
-        characterPositionAxisY = FEET;
-
-        // Set initial background positions
-        backgroundPosition = 0;
-        nextBackgroundPosition = WIDTH;
-
-        // Create the texture to be applied over the gradient
-        createTexture();
-
-        // Create initial clouds
-        createClouds();
+        // Resizable and fullscreen windows draw at a fixed internal resolution and scale the result once
+        if (GameSettings.isFixedWindow()) {
+            framebuffer = null;
+        } else {
+            Dimension resolution = GameSettings.getRenderResolution(WIDTH, HEIGHT);
+            framebuffer = new ScaledFramebuffer(resolution.width, resolution.height, WIDTH, HEIGHT);
+        }
 
-        // Create obstacles
-        createObstacles();
+        // Images are scaled to their draw size once, in the display's native format
+        spriteCache = AssetService.getInstance().getSpriteCache(getGraphicsConfiguration());
+
+        // The renderer draws cached layers and sprites, so each frame is a handful of blits
+        renderer = new GameRenderer(spriteCache, TICK_NANOS);
+
+        // The engine owns the game state, the window only renders it, the course is built off the game loop
+        engine = new GameEngine(0, AssetService.getInstance().getCollisionMasks(), 0, courseStream);
+
+        // Race the runners of other windows when ghost racing is on
+        openGhostRace();
+
+        // Snapshots hand the simulation state over to the paint code without locking
+        snapshots = new SnapshotBuffer<>(engine::createSnapshot);
+
+        // Create and configure the main panel, either drawn by Swing or directly by the game loop
+        Consumer<Graphics> painter = this::paintFrame;
+        Runnable render;
+        if (GameSettings.isActiveRendering()) {
+            ActiveCanvas canvas = new ActiveCanvas(GameSettings.getBufferCount());
+            gamePanel = canvas;
+            render = () -> {
+                // Presenting is whatever the flip costs on top of drawing the frame
+                long start = System.nanoTime();
+                canvas.render(painter);
+                frameStats.present.record(System.nanoTime() - start - lastRenderNanos);
+            };
+        } else {
+            gamePanel = new JPanel() {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    super.paintComponent(g);
+
+                    // Presenting is the wait between requesting a repaint and Swing painting it
+                    long requested = repaintRequestTime;
+                    if (requested != 0) {
+                        frameStats.present.record(System.nanoTime() - requested);
+                        repaintRequestTime = 0;
+                    }
+                    painter.accept(g);
+                }
+            };
+            render = () -> {
+                if (repaintRequestTime == 0) repaintRequestTime = System.nanoTime();
+
+                // Once the scene is frozen only the dying character changes, unscaled windows repaint just that area
+                if (engine.isGameOver() && renderedDeathFrame > 0 && framebuffer == null && !isSceneMoving()) {
+                    renderer.getCharacterBounds(engine.getCharacterPositionAxisY(), dirtyArea);
+                    gamePanel.repaint(dirtyArea.x, dirtyArea.y, dirtyArea.width, dirtyArea.height);
+                } else {
+                    gamePanel.repaint();
+                }
+            };
+        }
 
-        // Create and configure the main panel
-        JPanel gamePanel = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                drawGradientBackground(g); // Draw gradient background
-                drawTexturizeOverlay(g);   // Apply texture overlay
-                drawBackground(g);         // Draw ground images
-                drawClouds(g);             // Draw clouds
-                drawObstacles(g);          // Draw obstacles
-                drawCharacter(g);          // Draw the character
-                drawScore(g);              // Draw score
-            }
-        };
+        // The game loop simulates at a fixed rate and requests frames independently of the EDT
+        gameLoop = new GameLoop("CuteRunner-GameLoop", TICK_NANOS, FRAME_NANOS, this::tick, skipStaticFrames(render));
 
         // Apply the normal cursor to the main panel
         CursorUtil.applyNormalCursor(gamePanel);
 
         // Add a mouse listener to handle click events globally in this panel
+        cursorRevert = new TimingWheel.Entry(() -> CursorUtil.applyNormalCursor(gamePanel));
         gamePanel.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
+                UiScheduler.getInstance().cancel(cursorRevert);
                 CursorUtil.applyClickCursor(gamePanel);
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
-                Timer timer = new Timer(200, event -> {
-                    CursorUtil.applyNormalCursor(gamePanel);
-                    ((Timer) event.getSource()).stop(); // Stop the timer after execution
-                });
-                timer.setRepeats(false); // Ensure the timer runs only once
-                timer.start();
+                // The same entry is moved on every release, rapid clicks never pile up reverts
+                UiScheduler.getInstance().schedule(cursorRevert, 200);
             }
         });
 
-        // Start animations
-        startAnimations(gamePanel);
+        // Key bindings work whichever component has the focus, the jump itself starts on the next tick
+        InputMap inputMap = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actionMap = getRootPane().getActionMap();
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_SPACE, 0), "jump");
+        actionMap.put("jump", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                inputBuffer.offer(Input.JUMP, eventTime(e));
+            }
+        });
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleStats");
+        actionMap.put("toggleStats", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                statsOverlay.toggle(); // Show or hide the frame-time overlay
+            }
+        });
 
-        // Add key listener for jump action
-        addKeyListener(new java.awt.event.KeyAdapter() {
+        // Nothing is simulated or drawn while the window is minimized or in the background, unless it is racing
+        addWindowListener(new WindowAdapter() {
             @Override
-            public void keyPressed(java.awt.event.KeyEvent e) {
-                if (e.getKeyCode() == java.awt.event.KeyEvent.VK_SPACE) {
-                    initiateJump();
-                }
+            public void windowIconified(WindowEvent e) {
+                pauseSession();
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                resumeSession();
+            }
+
+            @Override
+            public void windowActivated(WindowEvent e) {
+                resumeSession();
+            }
+
+            @Override
+            public void windowDeactivated(WindowEvent e) {
+                pauseSession();
             }
         });
 
-        // Add panel to the window and display it
+        // Add panel to the window, it is displayed when a session starts
         getContentPane().add(gamePanel);
-        setVisible(true);
     }
 
-    private void startAnimations(JPanel panel) {
-        Timer timer = new Timer(20, e -> {
-            if (!isGameOver) {
-                updateGameObjects();
-                checkCollision();
-                checkWinCondition();
+    // While the death animation plays and nothing else moves, a frame is only drawn when the sprite changes
+    private Runnable skipStaticFrames(Runnable render) {
+        return () -> {
+            if (engine.isGameOver() && !isSceneMoving()) {
+                int deathFrame = engine.getCurrentFrame() + 1;
+                if (deathFrame == renderedDeathFrame) return;
+                render.run();
+                renderedDeathFrame = deathFrame;
+            } else {
+                // The next frozen frame is drawn whole, it has to cover what moved until now
+                render.run();
+                renderedDeathFrame = 0;
+            }
+        };
+    }
+
+    // Ghosts and the frame-time overlay keep changing after this runner's game is over
+    private boolean isSceneMoving() {
+        return ghostsShown || statsOverlay.isVisible();
+    }
+
+    // Resets the game in place and starts simulating, called on the EDT and returns without waiting
+    public void startSession(int obstacleCount) {
+        // The previous session's loop and files must be done before its state is reused
+        gameLoop.stop();
+        int request = ++startRequest;
+        String replayFile = GameSettings.getReplayFile();
+
+        // Its files, the replay file and the race's course may all take a while, they are waited for off the EDT
+        CompletableFuture<Void> previousWrites = pendingWrites;
+        CompletableFuture.runAsync(() -> {
+            try {
+                previousWrites.join();
+            } catch (CompletionException e) {
+                logger.log(Level.WARNING, "Error writing the last session's files", e);
             }
-            panel.repaint();
+
+            // A replay file drives the session instead of the keyboard, otherwise it is a fresh seed or the race's
+            InputLog replayLog = loadReplay(replayFile);
+            long seed = replayLog != null ? replayLog.getSeed() : chooseSeed();
+            SwingUtilities.invokeLater(() -> {
+                // A newer start or a close came first
+                if (request == startRequest) beginSession(obstacleCount, replayLog, seed);
+            });
+        }).exceptionally(e -> {
+            logger.log(Level.WARNING, "Error starting the game", e);
+            return null;
         });
-        timer.start();
     }
 
-    private void updateGameObjects() {
-        // Move the background to the left
-        backgroundPosition -= 5;
-        nextBackgroundPosition -= 5;
+    private void beginSession(int obstacleCount, InputLog replayLog, long seed) {
+        replay = replayLog != null ? replayLog.cursor() : null;
 
-        // Reset background position when it moves out of the screen
-        if (backgroundPosition + getWidth() <= 0) backgroundPosition = nextBackgroundPosition + WIDTH;
-        if (nextBackgroundPosition + getWidth() <= 0) nextBackgroundPosition = backgroundPosition + WIDTH;
+        // Initialize obstacle count
+        this.obstacleCount = replayLog != null ? replayLog.getObstacleCount() : obstacleCount;
+        engine.reset(this.obstacleCount, seed);
+
+        // Character sprites dropped by the cache during the last session are rebuilt before they are needed
+        renderer.prefetch();
+
+        // Record every input so the session can be replayed
+        inputLog = new InputLog(seed, this.obstacleCount);
+
+        frameStats.reset();
+        inputBuffer.clear();
+        jumpInputTime = 0;
+        shownJumpInputTime = 0;
+        repaintRequestTime = 0;
+        renderedDeathFrame = 0;
+        capturedTick = -1;
+        capture = startCapture();
+        paused = false;
+        sessionActive = true;
+        publishSnapshot();
+
+        // Active rendering takes over painting again while the game runs
+        gamePanel.setIgnoreRepaint(gamePanel instanceof ActiveCanvas);
+        if (!isVisible()) WindowUtil.show(this);
+        gamePanel.repaint();
+
+        // Start animations
+        gameLoop.start();
+    }
+
+    // Stops the session and hides the window, keeping it ready for the next game
+    public void close() {
+        startRequest++;
+        sessionActive = false;
+        gameLoop.stop();
+        FrameCapture capture = this.capture;
+        this.capture = null;
+        if (capture != null) pendingWrites = CompletableFuture.runAsync(() -> finishCapture(capture));
+        courseStream.close();
+        WindowUtil.hide(this);
+    }
+
+    @Override
+    public void dispose() {
+        close();
+        closeQuietly(scoreStore, "the score file");
+
+        // Leaves the race, the hosting window also stops relaying for everyone else
+        GhostClient ghostClient = this.ghostClient;
+        this.ghostClient = null;
+        closeQuietly(ghostClient, "the ghost race connection");
+        GhostHost ghostHost = this.ghostHost;
+        this.ghostHost = null;
+        closeQuietly(ghostHost, "the ghost race host");
+        super.dispose();
+    }
+
+    private static void closeQuietly(Closeable resource, String name) {
+        if (resource == null) return;
+        try {
+            resource.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error closing " + name, e);
+        }
+    }
+
+    // Stops the game loop mid-game and leaves a single paused frame on screen, called on the EDT
+    private void pauseSession() {
+        // A racing runner keeps going, the others would see its ghost freeze and the host would drop it
+        if (!sessionActive || paused || ghostClient != null) return;
+        gameLoop.stop();
+        paused = true;
+        gamePanel.setIgnoreRepaint(false);
+        gamePanel.repaint();
+    }
+
+    private void resumeSession() {
+        if (!paused) return;
+        paused = false;
+        if (!sessionActive) return;
+        gamePanel.setIgnoreRepaint(gamePanel instanceof ActiveCanvas);
+        gameLoop.start();
+    }
 
-        // Move character
-        currentFrame = (currentFrame + 1) % (isJumping ? jumpSprites.size() : runSprites.size());
+    private void tick() {
+        // Runs on the game loop thread, the paint code only sees published snapshots
+        long start = System.nanoTime();
+        long tick = engine.getTicks();
+
+        // Take every key press since the previous tick, several jump presses start a single jump
+        long jumpPressTime = 0;
+        while (inputBuffer.poll(inputEvent)) {
+            if (inputEvent.input == Input.JUMP && jumpPressTime == 0) jumpPressTime = inputEvent.timestamp;
+        }
+
+        Input input = replay != null
+                ? replay.inputAt(tick)
+                : jumpPressTime != 0 ? Input.JUMP : Input.NONE;
+        boolean wasJumping = engine.isJumping();
+        inputLog.record(tick, input);
+        engine.step(input);
+
+        // Remember which key press started the jump, the paint code measures when it reaches the screen
+        if (replay == null && jumpPressTime != 0 && !wasJumping && engine.isJumping()) jumpInputTime = jumpPressTime;
+        GhostClient ghostClient = this.ghostClient;
+        if (ghostClient != null) exchangeGhosts(ghostClient);
+        publishSnapshot();
+        frameStats.simulation.record(System.nanoTime() - start);
+
+        if (replay != null && replay.isFinished(engine.getTicks()) && !engine.isFinished()) {
+            endSession("Replay finished with " + engine.getObstaclesDodged() + " obstacles dodged.");
+        } else if (engine.isFinished()) {
+            endSession(engine.hasWon()
+                    ? "Congratulations! You won by dodging " + engine.getObstaclesDodged() + " obstacles."
+                    : "Game Over! You dodged " + engine.getObstaclesDodged() + " obstacles.");
+        }
+    }
+
+    private void endSession(String message) {
+        // Stop simulating and let the EDT show the dialog with the last frame on screen
+        sessionActive = false;
+        gameLoop.stop();
+        gamePanel.setIgnoreRepaint(false);
+        gamePanel.repaint();
+        reportUnacceleratedImages();
+        reportCaches();
+        if (courseStream.getStalls() > 0) {
+            logger.info("The game loop waited for " + courseStream.getStalls() + " course chunks");
+        }
+        inputLog.finish(engine.getTicks());
+        writeSessionFiles(capture);
+        capture = null;
+
+        // Keep the result of every game played, replays were already recorded when they were played
+        int obstaclesDodged = engine.getObstaclesDodged();
+        if (scoreStore != null && replay == null) {
+            scoreStore.add(new RunResult(System.currentTimeMillis(), inputLog.getSeed(), engine.getTicks(),
+                    obstaclesDodged, obstacleCount, engine.hasWon()));
+        }
+
+        // The best run may wait for the score file, it is looked up off the EDT and the game loop
+        int mode = obstacleCount;
+        CompletableFuture.supplyAsync(() -> describeBestRun(mode, obstaclesDodged))
+                .exceptionally(e -> {
+                    logger.log(Level.WARNING, "Error reading the best run", e);
+                    return "";
+                })
+                .thenAccept(best -> SwingUtilities.invokeLater(() -> showEndGameDialog(message + best)));
+    }
+
+    private void paintFrame(Graphics g) {
+        long start = System.nanoTime();
+        frameStats.frameStarted(start);
+        if (framebuffer != null) {
+            framebuffer.present(g, gamePanel.getGraphicsConfiguration(), gamePanel.getWidth(), gamePanel.getHeight(),
+                    scenePainter);
+        } else {
+            paintScene(g);
+        }
+        statsOverlay.draw(g, 10, 40); // Drawn at the window's resolution so the text stays sharp
+        if (paused && sessionActive) drawPaused(g);
+        lastRenderNanos = System.nanoTime() - start;
+        frameStats.render.record(lastRenderNanos);
+    }
+
+    private void paintScene(Graphics g) {
+        GameSnapshot snapshot = snapshots.acquire();
+        renderer.render(g, snapshot);
+
+        // The first frame drawn with a new jump closes its input-to-frame latency
+        if (snapshot.jumpInputTime != shownJumpInputTime) {
+            shownJumpInputTime = snapshot.jumpInputTime;
+            if (shownJumpInputTime != 0) frameStats.input.record(System.nanoTime() - shownJumpInputTime);
+        }
+
+        // Each tick that reaches the screen is also drawn once into a capture buffer
+        FrameCapture capture = this.capture;
+        if (capture != null && snapshot.tick != capturedTick) {
+            capturedTick = snapshot.tick;
+            FrameCapture.Frame frame = capture.acquire();
+            if (frame != null) {
+                Graphics2D g2d = frame.image.createGraphics();
+                renderer.render(g2d, snapshot, 0f);
+                g2d.dispose();
+                capture.submit(frame);
+            }
+        }
+    }
+
+    private FrameCapture startCapture() {
+        String directory = GameSettings.getCaptureDirectory();
+        if (directory.isEmpty()) return null;
+
+        // A GIF file or a folder of PNG files per session
+        String format = GameSettings.getCaptureFormat();
+        String sessionName = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File output = new File(directory, "capture-" + sessionName + (format.equals("gif") ? ".gif" : ""));
+        try {
+            if (!output.getParentFile().isDirectory() && !output.getParentFile().mkdirs()) {
+                throw new IOException("Cannot create " + output.getParentFile());
+            }
+            FrameEncoder encoder = FrameEncoder.create(format, output, WIDTH, HEIGHT,
+                    (int) TimeUnit.NANOSECONDS.toMillis(TICK_NANOS));
+
+            // Encoders leave a core to the game, frames are dropped rather than slowing it down unless asked to block
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            return new FrameCapture(encoder, WIDTH, HEIGHT, CAPTURE_BUFFERS, threads,
+                    GameSettings.isCaptureBlocking() ? FrameCapture.Policy.BLOCK : FrameCapture.Policy.DROP);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error starting the capture to " + output + ", playing without it", e);
+            return null;
+        }
     }
 
-    private void checkCollision() {
-        // Define the horizontal range where collision can occur
-        int minHorizontalRange = 70;
-        int maxHorizontalRange = 130;
-
-        // Define the safe vertical height for the character to avoid collision
-        int safeCharacterHeight = FEET - 75;
-
-        // Check each obstacle for potential collision with the character
-        for (Obstacle obstacle : obstacles) {
-            // Check if the obstacle is within the defined horizontal range
-            if (obstacle.positionX >= minHorizontalRange && obstacle.positionX <= maxHorizontalRange) {
-                // If the character is below the safe height, trigger game over
-                if (characterPositionAxisY > safeCharacterHeight) {
-                    triggerGameOver(); // Stop the game on collision
-                    break;
+    private void drawPaused(Graphics g) {
+        g.setColor(PAUSED_COLOR);
+        g.fillRect(0, 0, gamePanel.getWidth(), gamePanel.getHeight());
+        g.setColor(Color.WHITE);
+        g.setFont(PAUSED_FONT);
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(PAUSED_TEXT, (gamePanel.getWidth() - metrics.stringWidth(PAUSED_TEXT)) / 2,
+                gamePanel.getHeight() / 2);
+    }
+
+    // Key bindings only carry the event time in milliseconds, so it is moved to the nanoTime clock
+    private static long eventTime(ActionEvent e) {
+        long queuedMillis = Math.max(0, System.currentTimeMillis() - e.getWhen());
+        return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(queuedMillis);
+    }
+
+    private InputLog loadReplay(String path) {
+        if (path.isEmpty()) return null;
+        try {
+            return InputLog.load(new File(path));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error loading replay " + path + ", playing normally", e);
+            return null;
+        }
+    }
+
+    private void writeSessionFiles(FrameCapture capture) {
+        String statsDirectory = GameSettings.getStatsDirectory();
+        String replayDirectory = replay == null ? GameSettings.getReplayDirectory() : "";
+        String sessionName = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+        // Write the histograms and the input log off the game loop, the next session waits for them
+        InputLog inputLog = this.inputLog;
+        pendingWrites = CompletableFuture.runAsync(() -> {
+            if (capture != null) finishCapture(capture);
+            if (!statsDirectory.isEmpty()) {
+                Path file = Paths.get(statsDirectory, "frames-" + sessionName + ".txt");
+                try {
+                    frameStats.writeTo(file);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Error writing frame stats to " + file, e);
                 }
             }
+            if (!replayDirectory.isEmpty()) {
+                File file = new File(replayDirectory, "replay-" + sessionName + ".crr");
+                try {
+                    inputLog.save(file);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Error writing replay to " + file, e);
+                }
+            }
+        });
+    }
+
+    private static ScoreStore openScoreStore() {
+        String path = GameSettings.getScoreFile();
+        if (path.isEmpty()) return null;
+        try {
+            return new ScoreStore(new File(path));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error opening the score file " + path + ", runs will not be kept", e);
+            return null;
+        }
+    }
+
+    // The run that just ended may still be queued for writing, so it is compared on its own
+    private String describeBestRun(int obstacleCount, int obstaclesDodged) {
+        if (scoreStore == null) return "";
+        List<RunResult> best = scoreStore.getTopRuns(obstacleCount, 1);
+        int record = best.isEmpty() ? 0 : best.get(0).obstaclesDodged;
+        return "<br>Best: " + Math.max(record, obstaclesDodged) + " obstacles.";
+    }
+
+    // Waits for the encoders to catch up, so it never runs on the game loop or the EDT
+    private static void finishCapture(FrameCapture capture) {
+        try {
+            capture.close();
+            logger.info(capture.getEncoded() + " frames captured, " + capture.getDropped() + " dropped");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error finishing the capture", e);
         }
     }
 
-    private void checkWinCondition() {
-        if (obstacleCount > 0 && obstaclesDodged >= obstacleCount) {
-            isGameOver = true;
-            showEndGameDialog("Congratulations! You won by dodging " + obstaclesDodged + " obstacles.");
+    private void reportUnacceleratedImages() {
+        List<String> unaccelerated = spriteCache.getUnacceleratedImages();
+        if (!unaccelerated.isEmpty()) {
+            logger.info(unaccelerated.size() + " of " + spriteCache.size() + " sprites are not accelerated: " + unaccelerated);
         }
     }
 
-    private void triggerGameOver() {
-        isGameOver = true;
-        new Timer(100, e -> {
-            currentFrame++;
-            if (currentFrame >= deathSprites.size()) {
-                ((Timer) e.getSource()).stop();
-                showEndGameDialog("Game Over! You dodged " + obstaclesDodged + " obstacles.");
+    private void reportCaches() {
+        AssetService assets = AssetService.getInstance();
+        logger.info(String.format("Sprite cache: %d of %d KB, %d hits, %d misses, %d evictions",
+                spriteCache.getBytes() / 1024, spriteCache.getBudgetBytes() / 1024, spriteCache.getHits(),
+                spriteCache.getMisses(), spriteCache.getEvictions()));
+        logger.info(String.format("Decoded images: %d KB, %d hits, %d misses, %d evictions",
+                assets.getBytes() / 1024, assets.getHits(), assets.getMisses(), assets.getEvictions()));
+    }
+
+    private void openGhostRace() {
+        String mode = GameSettings.getGhostMode();
+        if (mode.isEmpty()) return;
+        int port = GameSettings.getGhostPort();
+        try {
+            // The hosting window also races, through its own host on localhost
+            if (mode.equalsIgnoreCase("host")) {
+                ghostHost = new GhostHost(port);
+                ghostHost.start();
+                mode = "localhost";
             }
-            repaint();
-        }).start();
+            ghostClient = new GhostClient(new InetSocketAddress(mode, port));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error joining the ghost race on " + mode + ":" + port + ", playing alone", e);
+        }
+    }
+
+    // Racers all play the course the host picked, the hosting window picks a new one for each of its games
+    private long chooseSeed() {
+        long seed = new Random().nextLong();
+        GhostHost ghostHost = this.ghostHost;
+        if (ghostHost != null) {
+            ghostHost.setRaceSeed(seed);
+            return seed;
+        }
+        GhostClient ghostClient = this.ghostClient;
+        if (ghostClient == null) return seed;
+
+        // Not racing yet, a runner that is over is not drawn by the others
+        ghostState.isGameOver = true;
+        try {
+            if (ghostClient.awaitHost(ghostState, RACE_JOIN_NANOS)) return ghostClient.getRaceSeed();
+            logger.warning("The ghost race host did not answer, playing a course of its own");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error asking the ghost race host for its course", e);
+        }
+        return seed;
+    }
+
+    // Sends this runner and takes the latest of the others, both without blocking the game loop
+    private void exchangeGhosts(GhostClient ghostClient) {
+        ghostState.tick = engine.getTicks();
+        ghostState.characterPositionAxisY = engine.getCharacterPositionAxisY();
+        ghostState.currentFrame = engine.getCurrentFrame();
+        ghostState.obstaclesDodged = engine.getObstaclesDodged();
+        ghostState.isJumping = engine.isJumping();
+        ghostState.isGameOver = engine.isGameOver();
+        try {
+            ghostClient.send(ghostState);
+            ghostClient.poll();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Ghost race connection lost, playing alone", e);
+            this.ghostClient = null;
+            closeQuietly(ghostClient, "the ghost race connection");
+        }
+    }
+
+    private void publishSnapshot() {
+        GameSnapshot snapshot = snapshots.back();
+        engine.writeSnapshot(snapshot);
+
+        // Runners still in their race are drawn as ghosts
+        snapshot.ghostCount = 0;
+        GhostClient ghostClient = this.ghostClient;
+        if (ghostClient != null) {
+            snapshot.ensureGhostCapacity(ghostClient.getGhostCount());
+            for (int index = 0; index < ghostClient.getGhostCount(); index++) {
+                GhostState ghost = ghostClient.getGhost(index);
+                if (ghost.isGameOver) continue;
+                snapshot.ghostPositionY[snapshot.ghostCount] = ghost.characterPositionAxisY;
+                snapshot.ghostFrame[snapshot.ghostCount] = ghost.currentFrame;
+                snapshot.ghostJumping[snapshot.ghostCount] = ghost.isJumping;
+                snapshot.ghostCount++;
+            }
+        }
+        ghostsShown = snapshot.ghostCount > 0;
+        snapshot.tickTime = System.nanoTime();
+        snapshot.jumpInputTime = jumpInputTime;
+        snapshots.publish();
     }
 
     private void showEndGameDialog(String message) {
@@ -232,171 +726,11 @@ public class GameWindow extends JFrame {
     }
 
     private void restartGame() {
-        dispose();
-        new GameWindow(obstacleCount);  // Start a new game with the same obstacle count
+        startSession(obstacleCount);  // Start a new game with the same obstacle count
     }
 
     private void returnToMenu() {
-        dispose();
-        new Menu();  // Return to the main menu
-    }
-
-    private void drawScore(Graphics g) {
-        g.setFont(new Font("Arial", Font.BOLD, 24));
-        g.setColor(Color.BLACK);
-        g.drawString("Obstacles Dodged: " + obstaclesDodged, 10, 30);
-    }
-
-    private void createClouds() {
-        // Create clouds with random positions within the width of the screen
-        Random rand = new Random();
-        for (int index = 0; index < 20; index++) {
-            int x = rand.nextInt(WIDTH);  // Random initial X position within the screen width
-            int y = rand.nextInt(200);  // Random Y position in the upper part of the screen (0-200px)
-            double scale = 0.5 + rand.nextDouble();  // Random scaling factor for the cloud size
-            double speed = 2 + rand.nextDouble() * 3;  // Random speed for each cloud
-            clouds.add(new Cloud(x, y, scale, speed));  // Add the new cloud to the list
-        }
-    }
-
-    private void drawClouds(Graphics g) {
-        Graphics2D originalG2D = (Graphics2D) g.create();
-
-        for (Cloud cloud : clouds) {
-            Graphics2D g2d = (Graphics2D) originalG2D.create();
-
-            // Apply transformations
-            AffineTransform transform = new AffineTransform();
-            transform.translate(cloud.positionX, cloud.positionY);
-            transform.scale(cloud.scale, cloud.scale);
-            g2d.setTransform(transform);
-
-            // Draw the cloud
-            g2d.setColor(new Color(255, 255, 255, 200));
-            g2d.fillOval(0, 0, 100, 50);
-
-            // Stop movement if the game is over
-            if (!isGameOver) {
-                cloud.positionX -= (int) cloud.speed;
-                if (cloud.positionX + 200 < 0) {
-                    cloud.positionX = WIDTH + 200;
-                    cloud.positionY = new Random().nextInt(200);
-                }
-            }
-
-            g2d.dispose();
-        }
-
-        originalG2D.dispose();
-    }
-
-    private void createObstacles() {
-        while (obstacles.isEmpty()) {
-            int positionX = WIDTH + 200; // Generate beyond screen
-            int positionY = FEET + 40; // Generate near the ground
-            obstacles.add(new Obstacle(positionX, positionY)); // Random speed
-        }
-    }
-
-    private void drawObstacles(Graphics g) {
-        Graphics2D originalG2D = (Graphics2D) g.create();
-
-        for (Obstacle obstacle : obstacles) {
-            Graphics2D g2d = (Graphics2D) originalG2D.create();
-
-            // Apply transformations
-            AffineTransform transform = new AffineTransform();
-            transform.translate(obstacle.positionX, obstacle.positionY);
-            g2d.setTransform(transform);
-
-            // Draw the obstacle
-            g2d.drawImage(obstacleImage, 0, 0, 75, 75, this);
-
-            // Stop movement if the game is over
-            if (!isGameOver) {
-                obstacle.positionX -= 10;
-                if (obstacle.positionX + obstacleImage.getWidth(this) < 0) {
-                    obstacle.positionX = WIDTH + 200 + new Random().nextInt(WIDTH);
-                    obstaclesDodged++;
-                }
-            }
-
-            g2d.dispose();
-        }
-
-        originalG2D.dispose();
-    }
-
-    private void initiateJump() {
-        // Verify if the character is already in the air
-        if (!isJumping) {
-            isJumping = true;
-            jumpVelocity = -15; // Initial jump velocity
-            new Timer(20, e -> {
-                characterPositionAxisY += jumpVelocity;
-                jumpVelocity += 1; // Gravity effect
-
-                if (characterPositionAxisY >= FEET) {
-                    characterPositionAxisY = FEET;
-                    isJumping = false; // Reset jump state
-                    ((Timer) e.getSource()).stop();
-                }
-                repaint();
-            }).start();
-        }
-    }
-
-    private void createTexture() {
-        // Create the texture
-        BufferedImage textureImage = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = textureImage.createGraphics();
-        g2d.setColor(new Color(255, 255, 255, 80));
-        g2d.fillOval(4, 4, 4, 4);
-        g2d.fillOval(12, 12, 2, 2);
-        g2d.dispose();
-        texturePaint = new TexturePaint(textureImage, new Rectangle(0, 0, 16, 16));
-    }
-
-    private void drawGradientBackground(Graphics g) {
-        // Create the gradient
-        Graphics2D g2d = (Graphics2D) g;
-        int width = getWidth();
-        int height = getHeight();
-        GradientPaint gradient = new GradientPaint(
-                0, 0, new Color(255, 182, 193),
-                0, height, new Color(221, 160, 221)
-        );
-        g2d.setPaint(gradient);
-        g2d.fillRect(0, 0, width, height);
-    }
-
-    private void drawTexturizeOverlay(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setPaint(texturePaint);
-        g2d.fillRect(0, 0, getWidth(), getHeight());
-    }
-
-    private void drawBackground(Graphics g) {
-        g.drawImage(background, backgroundPosition, HEIGHT - GROUND, WIDTH, GROUND, this);
-        g.drawImage(background, nextBackgroundPosition, HEIGHT - GROUND, WIDTH, GROUND, this);
-    }
-
-    private void drawCharacter(Graphics g) {
-        // Determine the correct sprite to draw
-        Image currentImage;
-
-        // Check if the death sprite should be drawn
-        if (isGameOver && (obstacleCount == 0 || obstaclesDodged != obstacleCount)) {
-            // Use death sprite if the game is over and either in infinite mode or the player hasn't won
-            currentImage = deathSprites.get(Math.min(currentFrame, deathSprites.size() - 1));
-            g.drawImage(currentImage, 100, characterPositionAxisY, 135, 110, this);  // Draw death sprite
-        } else {
-            // Use running or jumping sprites otherwise
-            currentImage = isJumping
-                    ? jumpSprites.get(currentFrame % jumpSprites.size())
-                    : runSprites.get(currentFrame % runSprites.size());
-            g.drawImage(currentImage, 100, characterPositionAxisY, 100, 100, this);  // Draw normal sprite
-        }
+        Screens.showMenu();  // Return to the main menu
     }
 
 }
@@ -1,68 +1,87 @@
 package com.abzikel;
 
+import com.abzikel.loop.TimingWheel;
+import com.abzikel.tools.HeadlessBenchmark;
+import com.abzikel.utils.AssetService;
 import com.abzikel.utils.CursorUtil;
 import com.abzikel.utils.ImageUtil;
+import com.abzikel.utils.SpriteCache;
+import com.abzikel.utils.UiScheduler;
+import com.abzikel.utils.WindowUtil;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public class Menu extends JFrame {
     private static final int WIDTH = 800;
     private static final int HEIGHT = 600;
-    private final List<Image> idleSprites = new ArrayList<>();
-    private final Image background;
+    private static final String BACKGROUND_PATH = "/images/background_menu.png";
+    // The background is only scaled again once the window size has stayed the same this long
+    private static final long RESIZE_SETTLE_MILLIS = 150;
+    private final SpriteCache spriteCache;
+    private final SpriteCache.Animation idleSprites;
+    private final JPanel mainPanel;
+    private final Runnable progressListener;
+    private final TimingWheel.Entry animationStep;
+    private final TimingWheel.Entry backgroundRescale = new TimingWheel.Entry(this::rescaleBackground);
+    private Image background;
+    private int spriteWidth, spriteHeight;
     private int currentSpriteIndex = 0;
     private int obstacleLimit = 0;
+    private boolean opened;
 
+    // The menu is built once and shown again with open whenever a game ends
     public Menu() {
         // Window configuration
         setTitle("Cute Runner - Menu");
-        setSize(WIDTH, HEIGHT);
-        setResizable(false);
-        setMinimumSize(new Dimension(WIDTH, HEIGHT));
+        WindowUtil.configure(this, WIDTH, HEIGHT);
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        setLocationRelativeTo(null);
 
         // Set application icon
         setIconImage(ImageUtil.loadImage("/sprites/Idle (1).png"));
 
-        // Load sprites and background image
-        ImageUtil.loadSprites(idleSprites, 16, "Idle");
-        background = ImageUtil.loadImage("/images/background_menu.png");
+        // Load sprites at their own size, the cache may drop them while a game runs and rebuild them later
+        spriteCache = AssetService.getInstance().getSpriteCache(getGraphicsConfiguration());
+        idleSprites = spriteCache.loadAnimation("Idle", 16, 0, 0);
 
         // Main panel to adjust to the window
-        JPanel mainPanel = new JPanel() {
+        mainPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
 
-                // Draw background image
-                if (background != null)
-                    g.drawImage(background, 0, 0, getWidth(), getHeight(), this);
+                // Draw the background, stretched from its previous size while the window is being resized
+                g.drawImage(getScaledBackground(getWidth(), getHeight()), 0, 0, getWidth(), getHeight(), this);
 
-                // Draw current sprite
-                if (!idleSprites.isEmpty()) {
-                    // Get a better position for the idle sprite
-                    int spriteAxisX = (int) (100 * ((double) getWidth() / 800));
-                    int spriteAxisY = (int) (100 * ((double) getHeight() / 600));
-                    g.drawImage(idleSprites.get(currentSpriteIndex), spriteAxisX, spriteAxisY, this);
-                }
+                // Draw the current frame of the idle sprite, nothing while the cache rebuilds dropped frames
+                Rectangle sprite = getSpriteBounds();
+                g.drawImage(idleSprites.frame(currentSpriteIndex), sprite.x, sprite.y, this);
+
+                // Draw the asset loading progress until every image is decoded
+                if (!AssetService.getInstance().isLoaded()) drawLoadingProgress(g, getWidth(), getHeight());
             }
         };
 
+        // Repaint the progress bar while the remaining assets are decoded in the background
+        progressListener = () -> {
+            Rectangle bar = getProgressBounds(mainPanel.getWidth(), mainPanel.getHeight());
+            mainPanel.repaint(bar.x, bar.y, bar.width + 1, bar.height + 1);
+        };
+
         // Grid Bag Layout to center the buttons
         mainPanel.setLayout(new GridBagLayout());
 
         // Create buttons and add them to the panel
         JButton playButton = createButton("btn_play", e -> {
-            // Dispose window and show GameWindow
-            dispose();
-            new GameWindow(obstacleLimit);
+            // Hide the menu and start a game
+            Screens.startGame(obstacleLimit);
         });
         JButton rulesButton = createButton("btn_rules", e -> showRules());
         JButton exitButton = createButton("btn_exit", e -> System.exit(0));
@@ -76,12 +95,54 @@ public class Menu extends JFrame {
         // Add a mouse listener to handle click events globally in this panel
         CursorUtil.addCursorBehavior(this, null, null, 200);
 
-        // Start idle animation
-        startAnimation(mainPanel);
+        // Idle animation, only running while the menu is open, visible and focused
+        animationStep = createAnimationStep();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowIconified(WindowEvent e) {
+                UiScheduler.getInstance().cancel(animationStep);
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                resumeAnimation();
+            }
+
+            @Override
+            public void windowActivated(WindowEvent e) {
+                resumeAnimation();
+            }
+
+            @Override
+            public void windowDeactivated(WindowEvent e) {
+                UiScheduler.getInstance().cancel(animationStep);
+            }
+        });
 
         // Add main panel to the window
         getContentPane().add(mainPanel);
-        setVisible(true);
+    }
+
+    public void open() {
+        opened = true;
+        AssetService.getInstance().addProgressListener(progressListener);
+        resumeAnimation();
+        if (!isVisible()) WindowUtil.show(this);
+    }
+
+    // Stops everything the menu runs while hidden, it can be opened again later
+    public void close() {
+        opened = false;
+        UiScheduler.getInstance().cancel(animationStep);
+        AssetService.getInstance().removeProgressListener(progressListener);
+        WindowUtil.hide(this);
+    }
+
+    @Override
+    public void dispose() {
+        UiScheduler.getInstance().cancel(animationStep);
+        AssetService.getInstance().removeProgressListener(progressListener);
+        super.dispose();
     }
 
     private JButton createButton(String path, ActionListener actionListener) {
@@ -172,21 +233,81 @@ public class Menu extends JFrame {
         }
     }
 
-    private void startAnimation(JPanel panel) {
-        // Cycle of sprites
-        Timer animationTimer = new Timer(100, e -> {
-            // Cycle of sprites
-            currentSpriteIndex = (currentSpriteIndex + 1) % idleSprites.size();
-            panel.repaint();
+    private void drawLoadingProgress(Graphics g, int width, int height) {
+        Rectangle bar = getProgressBounds(width, height);
+
+        // Draw the bar outline and fill it with the current progress
+        g.setColor(Color.WHITE);
+        g.drawRect(bar.x, bar.y, bar.width, bar.height);
+        g.fillRect(bar.x, bar.y, (int) (bar.width * AssetService.getInstance().getProgress()), bar.height);
+    }
+
+    private static Rectangle getProgressBounds(int width, int height) {
+        int barWidth = width / 3;
+        return new Rectangle((width - barWidth) / 2, height - 60, barWidth, 10);
+    }
+
+    private Rectangle getSpriteBounds() {
+        // Get a better position for the idle sprite
+        int spriteAxisX = (int) (100 * ((double) mainPanel.getWidth() / 800));
+        int spriteAxisY = (int) (100 * ((double) mainPanel.getHeight() / 600));
+        Image sprite = idleSprites.frame(currentSpriteIndex);
+        if (sprite != null) {
+            spriteWidth = sprite.getWidth(null);
+            spriteHeight = sprite.getHeight(null);
+        }
+        return new Rectangle(spriteAxisX, spriteAxisY, spriteWidth, spriteHeight);
+    }
+
+    private Image getScaledBackground(int width, int height) {
+        if (width <= 0 || height <= 0) return null;
+
+        // The first size is scaled right away, later ones once the resize settles
+        if (background == null) {
+            background = spriteCache.loadImage(BACKGROUND_PATH, width, height);
+        } else if (background.getWidth(null) != width || background.getHeight(null) != height) {
+            UiScheduler.getInstance().schedule(backgroundRescale, RESIZE_SETTLE_MILLIS);
+        }
+        return background;
+    }
+
+    // Scales the background to the settled window size off the EDT
+    private void rescaleBackground() {
+        int width = mainPanel.getWidth();
+        int height = mainPanel.getHeight();
+        if (width <= 0 || height <= 0) return;
+        CompletableFuture.supplyAsync(() -> spriteCache.loadImage(BACKGROUND_PATH, width, height))
+                .thenAccept(image -> SwingUtilities.invokeLater(() -> {
+                    background = image;
+                    mainPanel.repaint();
+                }));
+    }
+
+    private TimingWheel.Entry createAnimationStep() {
+        // Cycle of sprites, only the sprite area is repainted
+        return new TimingWheel.Entry(() -> {
+            currentSpriteIndex = (currentSpriteIndex + 1) % idleSprites.length();
+            Rectangle sprite = getSpriteBounds();
+            mainPanel.repaint(sprite.x, sprite.y, sprite.width, sprite.height);
         });
+    }
 
-        // Start time
-        animationTimer.start();
+    private void resumeAnimation() {
+        UiScheduler scheduler = UiScheduler.getInstance();
+        if (opened && !scheduler.isScheduled(animationStep)) scheduler.scheduleAtFixedRate(animationStep, 100, 100);
     }
 
     public static void main(String[] args) {
+        // Build boxes run bot games without a display instead of opening the menu
+        if (args.length > 0 && args[0].equals("--bench")) {
+            System.exit(HeadlessBenchmark.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        // Start decoding every asset in parallel while the menu opens
+        AssetService.getInstance().preloadAll();
+
         // Launch the menu window
-        SwingUtilities.invokeLater(Menu::new);
+        SwingUtilities.invokeLater(Screens::showMenu);
     }
 
 }
@@ -0,0 +1,20 @@
+package com.abzikel;
+
+// Owns the menu and game windows, which are built on first use and then only shown and hidden (EDT only)
+public class Screens {
+    private static Menu menu;
+    private static GameWindow gameWindow;
+
+    public static void showMenu() {
+        if (gameWindow != null) gameWindow.close();
+        if (menu == null) menu = new Menu();
+        menu.open();
+    }
+
+    public static void startGame(int obstacleCount) {
+        if (menu != null) menu.close();
+        if (gameWindow == null) gameWindow = new GameWindow();
+        gameWindow.startSession(obstacleCount);
+    }
+
+}
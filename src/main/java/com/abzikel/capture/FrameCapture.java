@@ -0,0 +1,155 @@
+package com.abzikel.capture;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Hands rendered frames to background encoder threads through a fixed pool of reusable buffers
+public class FrameCapture {
+    private static final Logger logger = Logger.getLogger(FrameCapture.class.getName());
+    private final FrameEncoder encoder;
+    private final BlockingQueue<Frame> freeFrames;
+    private final BlockingQueue<Frame> pendingFrames;
+    private final Thread[] encoderThreads;
+    private final Policy policy;
+    private final AtomicInteger encoded = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final Frame stop = new Frame(null);
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private int nextIndex; // Only touched by the producer
+
+    // What the producer does when every buffer is still waiting to be encoded
+    public enum Policy {
+        BLOCK, // Wait for a buffer, no frame is lost but the producer slows down to the encoders' pace
+        DROP   // Skip the frame and carry on
+    }
+
+    // A pooled buffer, draw into image and submit it
+    public static class Frame {
+        public final BufferedImage image;
+        private int index;
+
+        private Frame(BufferedImage image) {
+            this.image = image;
+        }
+    }
+
+    public FrameCapture(FrameEncoder encoder, int width, int height, int bufferCount, int threads, Policy policy) {
+        this.encoder = encoder;
+        this.policy = policy;
+
+        // Every buffer is allocated up front, capturing never allocates images
+        freeFrames = new ArrayBlockingQueue<>(bufferCount);
+        for (int index = 0; index < bufferCount; index++) {
+            freeFrames.add(new Frame(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)));
+        }
+
+        // Room for every buffer plus one stop marker per encoder thread, so submitting never blocks
+        pendingFrames = new ArrayBlockingQueue<>(bufferCount + threads);
+        encoderThreads = new Thread[threads];
+        for (int index = 0; index < threads; index++) {
+            encoderThreads[index] = new Thread(this::encodeFrames, "CuteRunner-Capture-" + (index + 1));
+            encoderThreads[index].setDaemon(true);
+            encoderThreads[index].start();
+        }
+    }
+
+    // A free buffer, or null when the frame should be skipped because of the drop policy or a closed capture
+    public Frame acquire() {
+        if (closed) return null;
+        Frame frame = freeFrames.poll();
+        if (frame != null) return frame;
+
+        if (policy == Policy.DROP) {
+            dropped.incrementAndGet();
+            return null;
+        }
+
+        // Backpressure, wait for an encoder thread to give a buffer back
+        long start = System.nanoTime();
+        try {
+            return freeFrames.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+            return null;
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // Queues an acquired frame, frames are numbered in the order they are submitted
+    public void submit(Frame frame) {
+        frame.index = nextIndex++;
+        pendingFrames.add(frame);
+    }
+
+    // Waits for every submitted frame to be encoded and closes the encoder, rethrows the first encoding error
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        for (int index = 0; index < encoderThreads.length; index++) pendingFrames.add(stop);
+        for (Thread thread : encoderThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while finishing the capture", e);
+            }
+        }
+
+        encoder.close();
+        if (failure != null) throw failure;
+    }
+
+    public int getEncoded() {
+        return encoded.get();
+    }
+
+    public int getDropped() {
+        return dropped.get();
+    }
+
+    // Time the producer spent waiting for a free buffer
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    private void encodeFrames() {
+        while (true) {
+            Frame frame;
+            try {
+                frame = pendingFrames.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (frame == stop) return;
+
+            // Keep taking frames after an error so the producer never waits on buffers that are not coming back
+            try {
+                if (failure == null) {
+                    encoder.encode(frame.index, frame.image);
+                    encoded.incrementAndGet();
+                } else {
+                    encoder.skip(frame.index);
+                }
+            } catch (IOException | RuntimeException e) {
+                encoder.skip(frame.index);
+                if (failure == null) {
+                    logger.log(Level.WARNING, "Error encoding frame " + frame.index, e);
+                    failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+            } finally {
+                freeFrames.add(frame);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.abzikel.capture;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+// Writes captured frames somewhere, called from several encoder threads at once and not always in frame order
+public interface FrameEncoder extends Closeable {
+
+    // The frame is only valid until this returns, its buffer is reused for a later frame
+    void encode(int index, BufferedImage frame) throws IOException;
+
+    // The frame with this index will never be encoded, encoders that write in order stop waiting for it
+    default void skip(int index) {
+    }
+
+    // Called once, after every frame has been encoded or skipped
+    @Override
+    void close() throws IOException;
+
+    // A "png" sequence in the output folder, or a "gif" file at the output path
+    static FrameEncoder create(String format, File output, int width, int height, int frameMillis) throws IOException {
+        if (format.equals("png")) return new PngSequenceEncoder(output);
+        if (format.equals("gif")) return new GifEncoder(output, width, height, frameMillis);
+        throw new IllegalArgumentException("Unknown capture format: " + format);
+    }
+
+}
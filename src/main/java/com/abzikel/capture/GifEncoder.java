@@ -0,0 +1,212 @@
+package com.abzikel.capture;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+// Looping animated GIF, frames are mapped to a fixed palette in parallel and written in order by whichever thread is free
+public class GifEncoder implements FrameEncoder {
+    private static final String METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+    // Frames converted ahead of the next one to write, encoder threads wait beyond this
+    private static final int MAX_PENDING = 16;
+    private static final IndexColorModel PALETTE = createPalette();
+    private final int width, height;
+    private final ImageOutputStream output;
+    private final ImageWriter writer;
+    private final IIOMetadata firstMetadata, metadata;
+    private final Map<Integer, BufferedImage> converted = new HashMap<>();
+    private final Deque<BufferedImage> spareImages = new ArrayDeque<>();
+    private final Set<Integer> failed = new HashSet<>();
+
+    private IOException writeFailure; // Once the writer fails every frame after it is lost
+    private int nextIndex;
+
+    public GifEncoder(File file, int width, int height, int frameMillis) throws IOException {
+        this(open(file), width, height, frameMillis);
+    }
+
+    GifEncoder(ImageOutputStream output, int width, int height, int frameMillis) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("gif");
+        if (!writers.hasNext()) throw new IOException("No GIF writer available");
+        this.width = width;
+        this.height = height;
+        this.output = output;
+
+        writer = writers.next();
+        writer.setOutput(output);
+        writer.prepareWriteSequence(null);
+
+        // Every frame shares the palette and the delay, only the first one carries the loop extension
+        int delay = Math.max(2, Math.round(frameMillis / 10f));
+        ImageTypeSpecifier type = new ImageTypeSpecifier(PALETTE, PALETTE.createCompatibleSampleModel(width, height));
+        firstMetadata = createMetadata(type, delay, true);
+        metadata = createMetadata(type, delay, false);
+    }
+
+    @Override
+    public void encode(int index, BufferedImage frame) throws IOException {
+        // Map the frame to the palette outside the lock, that is the expensive part
+        BufferedImage indexed = null;
+        try {
+            indexed = takeSpareImage();
+            Graphics2D g2d = indexed.createGraphics();
+            g2d.drawImage(frame, 0, 0, null);
+            g2d.dispose();
+        } catch (RuntimeException | Error e) {
+            skip(index, indexed);
+            throw e;
+        }
+
+        synchronized (this) {
+            while (writeFailure == null && index - nextIndex >= MAX_PENDING) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    skip(index, indexed);
+                    throw new IOException("Interrupted while waiting for frame " + nextIndex, e);
+                }
+            }
+            if (writeFailure != null) {
+                spareImages.push(indexed);
+                throw new IOException("Frame " + index + " comes after a frame that could not be written", writeFailure);
+            }
+
+            converted.put(index, indexed);
+            writeReady();
+        }
+    }
+
+    // A frame that will never arrive, without this every later frame would wait for it forever
+    @Override
+    public void skip(int index) {
+        skip(index, null);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            // Frames that were waiting behind a skipped one
+            if (writeFailure == null) {
+                writeReady();
+                writer.endWriteSequence();
+            }
+        } finally {
+            writer.dispose();
+            output.close();
+        }
+    }
+
+    // Writes every frame that is now next in line, stepping over the skipped ones
+    private synchronized void writeReady() throws IOException {
+        while (true) {
+            if (failed.remove(nextIndex)) {
+                nextIndex++;
+                notifyAll();
+                continue;
+            }
+            BufferedImage next = converted.remove(nextIndex);
+            if (next == null) return;
+            try {
+                writer.writeToSequence(new IIOImage(next, null, nextIndex == 0 ? firstMetadata : metadata), null);
+            } catch (IOException | RuntimeException e) {
+                // The stream is broken, frames waiting for their turn give up instead of waiting forever
+                writeFailure = e instanceof IOException ? (IOException) e : new IOException(e);
+                converted.values().forEach(spareImages::push);
+                converted.clear();
+                throw writeFailure;
+            } finally {
+                nextIndex++;
+                spareImages.push(next);
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void skip(int index, BufferedImage indexed) {
+        if (indexed != null) spareImages.push(indexed);
+        if (index < nextIndex) return;
+        failed.add(index);
+        while (failed.remove(nextIndex)) nextIndex++;
+        notifyAll();
+    }
+
+    private static ImageOutputStream open(File file) throws IOException {
+        ImageOutputStream output = ImageIO.createImageOutputStream(file);
+        if (output == null) throw new IOException("Cannot write " + file);
+        return output;
+    }
+
+    private synchronized BufferedImage takeSpareImage() {
+        BufferedImage image = spareImages.poll();
+        return image != null ? image : new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+    }
+
+    private IIOMetadata createMetadata(ImageTypeSpecifier type, int delay, boolean loop) throws IOException {
+        IIOMetadata imageMetadata = writer.getDefaultImageMetadata(type, null);
+        IIOMetadataNode root = (IIOMetadataNode) imageMetadata.getAsTree(METADATA_FORMAT);
+
+        IIOMetadataNode control = getNode(root, "GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Integer.toString(delay));
+        control.setAttribute("transparentColorIndex", "0");
+
+        // Netscape extension, loop forever
+        if (loop) {
+            IIOMetadataNode application = new IIOMetadataNode("ApplicationExtension");
+            application.setAttribute("applicationID", "NETSCAPE");
+            application.setAttribute("authenticationCode", "2.0");
+            application.setUserObject(new byte[]{1, 0, 0});
+            getNode(root, "ApplicationExtensions").appendChild(application);
+        }
+
+        imageMetadata.setFromTree(METADATA_FORMAT, root);
+        return imageMetadata;
+    }
+
+    // The default metadata already has some of the nodes, the others are added
+    private static IIOMetadataNode getNode(IIOMetadataNode root, String name) {
+        for (int index = 0; index < root.getLength(); index++) {
+            if (root.item(index).getNodeName().equals(name)) return (IIOMetadataNode) root.item(index);
+        }
+        IIOMetadataNode node = new IIOMetadataNode(name);
+        root.appendChild(node);
+        return node;
+    }
+
+    // 6 levels of red and blue and 7 of green, a fixed palette keeps the conversion cheap and every frame consistent
+    private static IndexColorModel createPalette() {
+        byte[] red = new byte[256], green = new byte[256], blue = new byte[256];
+        int index = 0;
+        for (int r = 0; r < 6; r++) {
+            for (int g = 0; g < 7; g++) {
+                for (int b = 0; b < 6; b++) {
+                    red[index] = (byte) (r * 255 / 5);
+                    green[index] = (byte) (g * 255 / 6);
+                    blue[index] = (byte) (b * 255 / 5);
+                    index++;
+                }
+            }
+        }
+        return new IndexColorModel(8, index, red, green, blue);
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.abzikel.capture;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+// One numbered PNG file per frame, frames are independent so every encoder thread writes its own
+public class PngSequenceEncoder implements FrameEncoder {
+    private final File directory;
+
+    public PngSequenceEncoder(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create capture folder " + directory);
+        }
+        this.directory = directory;
+    }
+
+    @Override
+    public void encode(int index, BufferedImage frame) throws IOException {
+        File file = new File(directory, String.format("frame-%06d.png", index));
+        if (!ImageIO.write(frame, "png", file)) throw new IOException("No PNG writer available");
+    }
+
+    @Override
+    public void close() {
+        // Every file is complete once its frame is encoded
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.abzikel.engine;
+
+import java.util.Arrays;
+
+public class CollisionIndex {
+    // Obstacles sorted by their left edge, each key packs the position with the pool slot
+    private long[] keys = new long[16];
+    private int size;
+
+    // Re-sorts the obstacles, they barely change order between ticks so this is close to linear
+    public void update(EntityPool obstacles) {
+        int[] positionX = obstacles.positionX;
+        int count = obstacles.size();
+
+        if (count != size) {
+            // Entities were spawned or released, start again from a full sort
+            if (keys.length < count) keys = new long[Math.max(count, keys.length * 2)];
+            for (int slot = 0; slot < count; slot++) {
+                keys[slot] = key(positionX[slot], slot);
+            }
+            size = count;
+            Arrays.sort(keys, 0, count);
+            return;
+        }
+
+        // Refresh the positions keeping the previous order, then fix it with an insertion sort
+        for (int index = 0; index < count; index++) {
+            int slot = slotAt(index);
+            keys[index] = key(positionX[slot], slot);
+        }
+        for (int index = 1; index < count; index++) {
+            long current = keys[index];
+            int previous = index - 1;
+            while (previous >= 0 && keys[previous] > current) {
+                keys[previous + 1] = keys[previous];
+                previous--;
+            }
+            keys[previous + 1] = current;
+        }
+    }
+
+    // First sorted position whose obstacle may reach the given column, given the widest obstacle
+    public int firstCandidate(int left, int maxObstacleWidth) {
+        long target = key(left - maxObstacleWidth, 0);
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < target) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int positionAt(int index) {
+        return (int) (keys[index] >> 32);
+    }
+
+    public int slotAt(int index) {
+        return (int) keys[index];
+    }
+
+    private static long key(int positionX, int slot) {
+        return ((long) positionX << 32) | slot;
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.abzikel.engine;
+
+public class CollisionMask {
+    private final int width, height, wordsPerRow;
+    private final long[] bits;
+    // Bounds of the solid pixels, used to reject most pairs before comparing bits
+    private final int minX, minY, maxX, maxY;
+
+    private CollisionMask(int width, int height, long[] bits) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = bits;
+
+        // Find the bounds of the solid pixels
+        int left = width, top = height, right = -1, bottom = -1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (isSolid(x, y)) {
+                    left = Math.min(left, x);
+                    right = Math.max(right, x);
+                    top = Math.min(top, y);
+                    bottom = Math.max(bottom, y);
+                }
+            }
+        }
+        minX = left;
+        minY = top;
+        maxX = right;
+        maxY = bottom;
+    }
+
+    // Pixels whose alpha is at least the threshold are solid, the array holds ARGB values row by row
+    public static CollisionMask fromArgb(int width, int height, int[] argb, int alphaThreshold) {
+        int wordsPerRow = (width + 63) >>> 6;
+        long[] bits = new long[wordsPerRow * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((argb[y * width + x] >>> 24) >= alphaThreshold) {
+                    bits[y * wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        return new CollisionMask(width, height, bits);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isEmpty() {
+        return maxX < 0;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public boolean isSolid(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    // True if a solid pixel of this mask touches one of the other mask placed at the given offset
+    public boolean overlaps(CollisionMask other, int offsetX, int offsetY) {
+        if (isEmpty() || other.isEmpty()) return false;
+
+        // Intersect the solid bounds of both masks
+        int left = Math.max(minX, other.minX + offsetX);
+        int right = Math.min(maxX, other.maxX + offsetX);
+        int top = Math.max(minY, other.minY + offsetY);
+        int bottom = Math.min(maxY, other.maxY + offsetY);
+        if (left > right || top > bottom) return false;
+
+        // Compare 64 pixels at a time inside the shared area
+        for (int y = top; y <= bottom; y++) {
+            int rowStart = y * wordsPerRow;
+            int otherRow = y - offsetY;
+            for (int x = left & ~63; x <= right; x += 64) {
+                long mine = bits[rowStart + (x >>> 6)];
+                if (mine != 0 && (mine & other.bitsAt(otherRow, x - offsetX)) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    // The 64 pixels of a row starting at any column, pixels outside the mask are empty
+    private long bitsAt(int row, int start) {
+        if (row < 0 || row >= height || start >= width || start <= -64) return 0;
+
+        int rowStart = row * wordsPerRow;
+        int word = start >> 6;
+        int shift = start & 63;
+        long low = word >= 0 ? bits[rowStart + word] : 0;
+        if (shift == 0) return low;
+        long high = word + 1 < wordsPerRow ? bits[rowStart + word + 1] : 0;
+        return (low >>> shift) | (high << (64 - shift));
+    }
+
+}
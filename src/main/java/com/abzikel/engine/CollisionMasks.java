@@ -0,0 +1,13 @@
+package com.abzikel.engine;
+
+public class CollisionMasks {
+    public final CollisionMask[] run, jump;
+    public final CollisionMask obstacle;
+
+    // Masks must match the size the sprites are drawn at
+    public CollisionMasks(CollisionMask[] run, CollisionMask[] jump, CollisionMask obstacle) {
+        this.run = run;
+        this.jump = jump;
+        this.obstacle = obstacle;
+    }
+}
@@ -0,0 +1,19 @@
+package com.abzikel.engine;
+
+// A stretch of the course, obstacle positions are relative to where the chunk starts
+public class CourseChunk {
+    public final long seed;
+    public final int index;
+    public final int length;
+    public final int speed; // Obstacle speed once the chunk reaches the screen
+    public final int[] obstacleOffsets;
+
+    public CourseChunk(long seed, int index, int length, int speed, int[] obstacleOffsets) {
+        this.seed = seed;
+        this.index = index;
+        this.length = length;
+        this.speed = speed;
+        this.obstacleOffsets = obstacleOffsets;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.abzikel.engine;
+
+import java.util.Random;
+
+// Builds course chunks on the calling thread, each chunk only depends on the seed and its index
+public class CourseGenerator implements CourseSource {
+    // Chunks until the course reaches its full difficulty
+    public static final int RAMP_CHUNKS = 30;
+    public static final int MAX_SPEED = 16;
+    private static final int GROUPS_PER_CHUNK = 3;
+    // Ticks the character spends in the air, plus a few to land before the next jump
+    private static final int JUMP_TICKS = 2 * -GameEngine.JUMP_VELOCITY / GameEngine.GRAVITY;
+    private static final int LANDING_TICKS = 8;
+    private long seed;
+    private int nextIndex;
+
+    @Override
+    public void reset(long seed) {
+        this.seed = seed;
+        this.nextIndex = 0;
+    }
+
+    @Override
+    public CourseChunk next() {
+        return generate(seed, nextIndex++);
+    }
+
+    public static CourseChunk generate(long seed, int index) {
+        Random random = new Random(chunkSeed(seed, index));
+        float difficulty = Math.min(1f, (float) index / RAMP_CHUNKS);
+        int speed = GameEngine.OBSTACLE_SPEED + Math.round((MAX_SPEED - GameEngine.OBSTACLE_SPEED) * difficulty);
+
+        // Obstacles in a group are one jump apart, groups get closer and longer as the course goes on
+        int jumpSpacing = speed * (JUMP_TICKS + LANDING_TICKS);
+        int minGap = Math.max(jumpSpacing, Math.round(lerp(1500, 700, difficulty)));
+        int gapRange = Math.round(lerp(GameEngine.WIDTH, 400, difficulty));
+
+        int[] offsets = new int[GROUPS_PER_CHUNK * 3];
+        int count = 0;
+        int position = 0;
+        for (int group = 0; group < GROUPS_PER_CHUNK; group++) {
+            int groupSize = 1;
+            float roll = random.nextFloat();
+            if (roll < 0.15f * difficulty * difficulty) groupSize = 3;
+            else if (roll < 0.4f * difficulty) groupSize = 2;
+
+            for (int obstacle = 0; obstacle < groupSize; obstacle++) {
+                offsets[count++] = position;
+                position += obstacle < groupSize - 1 ? jumpSpacing : 0;
+            }
+            position += minGap + random.nextInt(gapRange);
+        }
+
+        int[] obstacleOffsets = new int[count];
+        System.arraycopy(offsets, 0, obstacleOffsets, 0, count);
+        return new CourseChunk(seed, index, position, speed, obstacleOffsets);
+    }
+
+    // Spreads the seed and index bits so neighbouring chunks get unrelated generators
+    private static long chunkSeed(long seed, int index) {
+        long value = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static float lerp(float from, float to, float amount) {
+        return from + (to - from) * amount;
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.abzikel.engine;
+
+// Hands out the chunks of a course in order, the same seed always gives the same chunks
+public interface CourseSource {
+
+    // Starts a new course, the next chunk returned is chunk 0 of the given seed
+    void reset(long seed);
+
+    CourseChunk next();
+
+}
@@ -0,0 +1,63 @@
+package com.abzikel.engine;
+
+import java.util.Arrays;
+
+public class EntityPool {
+    // Parallel arrays, one slot per entity, live entities are packed in [0, size)
+    public int[] positionX, positionY, type;
+    public float[] speed, scale;
+    private int size;
+
+    public EntityPool(int capacity) {
+        positionX = new int[capacity];
+        positionY = new int[capacity];
+        type = new int[capacity];
+        speed = new float[capacity];
+        scale = new float[capacity];
+    }
+
+    // Returns the slot of the new entity, the arrays only grow when every slot is in use
+    public int spawn(int positionX, int positionY, float speed, float scale, int type) {
+        if (size == this.positionX.length) grow();
+
+        int index = size++;
+        this.positionX[index] = positionX;
+        this.positionY[index] = positionY;
+        this.speed[index] = speed;
+        this.scale[index] = scale;
+        this.type[index] = type;
+        return index;
+    }
+
+    // Frees a slot by moving the last entity into it, so a loop releasing slot i must visit i again
+    public void release(int index) {
+        int last = --size;
+        positionX[index] = positionX[last];
+        positionY[index] = positionY[last];
+        speed[index] = speed[last];
+        scale[index] = scale[last];
+        type[index] = type[last];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return positionX.length;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, positionX.length * 2);
+        positionX = Arrays.copyOf(positionX, capacity);
+        positionY = Arrays.copyOf(positionY, capacity);
+        type = Arrays.copyOf(type, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        scale = Arrays.copyOf(scale, capacity);
+    }
+
+}
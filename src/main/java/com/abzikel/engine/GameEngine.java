@@ -0,0 +1,358 @@
+package com.abzikel.engine;
+
+import com.abzikel.pojos.GameSnapshot;
+
+import java.util.Random;
+
+public class GameEngine {
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+    public static final int GROUND = 512;
+    public static final int FEET = 400;
+    public static final int RUN_FRAMES = 20;
+    public static final int JUMP_FRAMES = 30;
+    public static final int DEATH_FRAMES = 30;
+    public static final int CHARACTER_X = 100;
+    public static final int CHARACTER_SIZE = 100;
+    public static final int OBSTACLE_SIZE = 75;
+    public static final int CLOUD_COUNT = 20;
+    // Obstacle speed at the start of a course, the course speeds up from there
+    public static final int OBSTACLE_SPEED = 10;
+    public static final int BACKGROUND_SPEED = 5;
+    public static final int JUMP_VELOCITY = -15;
+    public static final int GRAVITY = 1;
+    // The death animation advances once every 5 ticks (100 ms at 50 ticks per second)
+    public static final int DEATH_FRAME_TICKS = 5;
+    // Obstacles are recycled once they are this far past the left edge (the width of obstacle.png)
+    private static final int OBSTACLE_RECYCLE_WIDTH = 500;
+    // Chunks are laid out once their start is this close to the right edge
+    private static final int COURSE_SPAWN_DISTANCE = 200;
+    private final EntityPool clouds = new EntityPool(CLOUD_COUNT);
+    private final EntityPool obstacles = new EntityPool(16);
+    private final CollisionIndex collisionIndex = new CollisionIndex();
+    private final CollisionMasks collisionMasks;
+    private final CourseSource course;
+    private final Random random = new Random();
+    private long seed;
+    private int obstacleCount;
+    private int backgroundPosition, nextBackgroundPosition;
+    private int currentFrame;
+    private int characterPositionAxisY;
+    private int jumpVelocity;
+    private int obstaclesDodged;
+    private int deathTicks;
+    private long ticks;
+    private int courseSpeed;
+    private int nextChunkPosition;
+    private boolean isJumping;
+    private boolean isGameOver;
+    private boolean isFinished;
+
+    public GameEngine(int obstacleCount, CollisionMasks collisionMasks, long seed) {
+        this(obstacleCount, collisionMasks, seed, new CourseGenerator());
+    }
+
+    // The course source decides where the chunks are built, every source gives the same course for a seed
+    public GameEngine(int obstacleCount, CollisionMasks collisionMasks, long seed, CourseSource course) {
+        this.collisionMasks = collisionMasks;
+        this.course = course;
+        reset(obstacleCount, seed);
+    }
+
+    // Starts a new session in place, reusing the entity pools of the previous one
+    public void reset(int obstacleCount, long seed) {
+        // Initialize obstacle count
+        this.obstacleCount = obstacleCount;
+
+        // Every random decision comes from this generator, so the same seed and inputs replay the same game
+        this.seed = seed;
+        random.setSeed(seed);
+
+        // Clear the previous session
+        currentFrame = 0;
+        jumpVelocity = 0;
+        obstaclesDodged = 0;
+        deathTicks = 0;
+        ticks = 0;
+        isJumping = false;
+        isGameOver = false;
+        isFinished = false;
+        clouds.clear();
+        obstacles.clear();
+
+        // Initialize character position
+        characterPositionAxisY = FEET;
+
+        // Set initial background positions
+        backgroundPosition = 0;
+        nextBackgroundPosition = WIDTH;
+
+        // Create initial clouds
+        createClouds();
+
+        // Lay out the start of the course just beyond the screen
+        course.reset(seed);
+        courseSpeed = OBSTACLE_SPEED;
+        nextChunkPosition = WIDTH + COURSE_SPAWN_DISTANCE;
+        streamCourse();
+    }
+
+    public void step(Input input) {
+        // Nothing changes once the session has ended
+        if (isFinished) return;
+        ticks++;
+
+        if (input == Input.JUMP && !isGameOver) initiateJump();
+
+        if (!isGameOver) {
+            updateGameObjects();
+            checkCollision();
+            checkWinCondition();
+        } else {
+            updateDeathAnimation();
+        }
+    }
+
+    public void writeSnapshot(GameSnapshot snapshot) {
+        snapshot.tick = ticks;
+        snapshot.isGameOver = isGameOver;
+        snapshot.isJumping = isJumping;
+        snapshot.showDeath = isGameOver && !hasWon();
+        snapshot.currentFrame = currentFrame;
+        snapshot.obstaclesDodged = obstaclesDodged;
+        snapshot.characterPositionAxisY = characterPositionAxisY;
+
+        // Velocities let the paint code interpolate towards the next tick
+        snapshot.jumpVelocity = isJumping && !isGameOver ? jumpVelocity : 0;
+        snapshot.backgroundSpeed = isGameOver ? 0 : BACKGROUND_SPEED;
+        snapshot.backgroundPosition = backgroundPosition;
+        snapshot.nextBackgroundPosition = nextBackgroundPosition;
+
+        // Copy entity positions
+        int cloudTotal = clouds.size();
+        int obstacleTotal = obstacles.size();
+        snapshot.ensureCapacity(cloudTotal, obstacleTotal);
+        snapshot.cloudCount = cloudTotal;
+        System.arraycopy(clouds.positionX, 0, snapshot.cloudPositionX, 0, cloudTotal);
+        System.arraycopy(clouds.positionY, 0, snapshot.cloudPositionY, 0, cloudTotal);
+        System.arraycopy(clouds.scale, 0, snapshot.cloudScale, 0, cloudTotal);
+        for (int index = 0; index < cloudTotal; index++) {
+            snapshot.cloudSpeed[index] = isGameOver ? 0 : (int) clouds.speed[index];
+        }
+        snapshot.obstacleCount = obstacleTotal;
+        System.arraycopy(obstacles.positionX, 0, snapshot.obstaclePositionX, 0, obstacleTotal);
+        System.arraycopy(obstacles.positionY, 0, snapshot.obstaclePositionY, 0, obstacleTotal);
+        System.arraycopy(obstacles.type, 0, snapshot.obstacleType, 0, obstacleTotal);
+        for (int index = 0; index < obstacleTotal; index++) {
+            snapshot.obstacleSpeed[index] = isGameOver ? 0 : (int) obstacles.speed[index];
+        }
+    }
+
+    public GameSnapshot createSnapshot() {
+        return new GameSnapshot(clouds.capacity(), obstacles.capacity());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getObstacleCount() {
+        return obstacleCount;
+    }
+
+    public int getObstaclesDodged() {
+        return obstaclesDodged;
+    }
+
+    public int getCharacterPositionAxisY() {
+        return characterPositionAxisY;
+    }
+
+    // Sprite frame of the current animation, running, jumping or dying
+    public int getCurrentFrame() {
+        return currentFrame;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public boolean isJumping() {
+        return isJumping;
+    }
+
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    // True once the win is reached or the death animation has finished playing
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    public boolean hasWon() {
+        return obstacleCount > 0 && obstaclesDodged >= obstacleCount;
+    }
+
+    // Distance from the character to the closest obstacle ahead of it, or -1 if there is none
+    public int distanceToNextObstacle() {
+        int closest = -1;
+        int[] positionX = obstacles.positionX;
+        for (int index = 0; index < obstacles.size(); index++) {
+            int distance = positionX[index] - CHARACTER_X;
+            if (distance >= 0 && (closest < 0 || distance < closest)) closest = distance;
+        }
+        return closest;
+    }
+
+    private void updateGameObjects() {
+        // Move the background to the left
+        backgroundPosition -= BACKGROUND_SPEED;
+        nextBackgroundPosition -= BACKGROUND_SPEED;
+
+        // Reset background position when it moves out of the screen
+        if (backgroundPosition + WIDTH <= 0) backgroundPosition = nextBackgroundPosition + WIDTH;
+        if (nextBackgroundPosition + WIDTH <= 0) nextBackgroundPosition = backgroundPosition + WIDTH;
+
+        // Move character
+        currentFrame = (currentFrame + 1) % (isJumping ? JUMP_FRAMES : RUN_FRAMES);
+        updateJump();
+
+        // Move clouds and obstacles
+        updateClouds();
+        updateObstacles();
+    }
+
+    private void checkCollision() {
+        if (isColliding()) triggerGameOver(); // Stop the game on collision
+    }
+
+    // True if the character currently touches any obstacle
+    public boolean isColliding() {
+        // The character mask matches the frame drawn this tick
+        CollisionMask[] frames = isJumping ? collisionMasks.jump : collisionMasks.run;
+        CollisionMask characterMask = frames[currentFrame % frames.length];
+        CollisionMask obstacleMask = collisionMasks.obstacle;
+
+        // Broadphase, only obstacles whose horizontal span reaches the character are candidates
+        collisionIndex.update(obstacles);
+        int left = CHARACTER_X + characterMask.getMinX();
+        int right = CHARACTER_X + characterMask.getMaxX();
+        int[] positionY = obstacles.positionY;
+        for (int index = collisionIndex.firstCandidate(left, obstacleMask.getWidth()); index < collisionIndex.size(); index++) {
+            int obstaclePositionX = collisionIndex.positionAt(index);
+            if (obstaclePositionX > right) break;
+
+            // Narrowphase, compare the solid pixels of both sprites
+            int offsetX = obstaclePositionX - CHARACTER_X;
+            int offsetY = positionY[collisionIndex.slotAt(index)] - characterPositionAxisY;
+            if (characterMask.overlaps(obstacleMask, offsetX, offsetY)) return true;
+        }
+        return false;
+    }
+
+    private void checkWinCondition() {
+        if (hasWon()) {
+            isGameOver = true;
+            isFinished = true;
+        }
+    }
+
+    private void triggerGameOver() {
+        isGameOver = true;
+        deathTicks = 0;
+    }
+
+    private void updateDeathAnimation() {
+        // Play the death animation before finishing the session
+        if (++deathTicks % DEATH_FRAME_TICKS != 0) return;
+        currentFrame++;
+        if (currentFrame >= DEATH_FRAMES) isFinished = true;
+    }
+
+    private void createClouds() {
+        // Create clouds with random positions within the width of the screen
+        for (int index = 0; index < CLOUD_COUNT; index++) {
+            int x = random.nextInt(WIDTH);  // Random initial X position within the screen width
+            int y = random.nextInt(200);  // Random Y position in the upper part of the screen (0-200px)
+            float scale = 0.5f + random.nextFloat();  // Random scaling factor for the cloud size
+            float speed = 2 + random.nextFloat() * 3;  // Random speed for each cloud
+            clouds.spawn(x, y, speed, scale, 0);  // Add the new cloud to the pool
+        }
+    }
+
+    private void updateClouds() {
+        int[] positionX = clouds.positionX;
+        int[] positionY = clouds.positionY;
+        float[] speed = clouds.speed;
+        for (int index = 0; index < clouds.size(); index++) {
+            positionX[index] -= (int) speed[index];
+            if (positionX[index] + 200 < 0) {
+                positionX[index] = WIDTH + 200;
+                positionY[index] = random.nextInt(200);
+            }
+        }
+    }
+
+    // Lays out every chunk whose start has come close enough to the screen
+    private void streamCourse() {
+        while (nextChunkPosition <= WIDTH + COURSE_SPAWN_DISTANCE) {
+            CourseChunk chunk = course.next();
+
+            // The whole course moves at the speed of the newest chunk
+            courseSpeed = chunk.speed;
+            float[] speed = obstacles.speed;
+            for (int index = 0; index < obstacles.size(); index++) speed[index] = courseSpeed;
+
+            for (int offset : chunk.obstacleOffsets) spawnObstacle(nextChunkPosition + offset);
+            nextChunkPosition += chunk.length;
+        }
+    }
+
+    // Adds an obstacle on the ground at the given horizontal position
+    public void spawnObstacle(int positionX) {
+        int positionY = FEET + 40; // Generate near the ground
+        obstacles.spawn(positionX, positionY, courseSpeed, 1f, 0);
+    }
+
+    public int getCourseSpeed() {
+        return courseSpeed;
+    }
+
+    private void updateObstacles() {
+        int[] positionX = obstacles.positionX;
+        float[] speed = obstacles.speed;
+        for (int index = 0; index < obstacles.size(); index++) {
+            positionX[index] -= (int) speed[index];
+            if (positionX[index] + OBSTACLE_RECYCLE_WIDTH < 0) {
+                obstacles.release(index--); // Retire it, the last obstacle moved into this slot
+                obstaclesDodged++;
+            }
+        }
+
+        // Bring in the next chunks as the course scrolls
+        nextChunkPosition -= courseSpeed;
+        streamCourse();
+    }
+
+    private void initiateJump() {
+        // Verify if the character is already in the air
+        if (!isJumping) {
+            isJumping = true;
+            jumpVelocity = JUMP_VELOCITY; // Initial jump velocity
+        }
+    }
+
+    private void updateJump() {
+        if (!isJumping) return;
+
+        characterPositionAxisY += jumpVelocity;
+        jumpVelocity += GRAVITY; // Gravity effect
+
+        if (characterPositionAxisY >= FEET) {
+            characterPositionAxisY = FEET;
+            isJumping = false; // Reset jump state
+        }
+    }
+
+}
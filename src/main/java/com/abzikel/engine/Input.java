@@ -0,0 +1,6 @@
+package com.abzikel.engine;
+
+public enum Input {
+    NONE,
+    JUMP
+}
@@ -0,0 +1,175 @@
+package com.abzikel.engine;
+
+import java.io.*;
+import java.util.Arrays;
+
+public class InputLog {
+    private static final int MAGIC = 0x43525250; // "CRRP"
+    // Version 1 logs were recorded on the single recycled obstacle course and no longer replay the same game
+    private static final int VERSION = 2;
+    private static final Input[] INPUTS = Input.values();
+    private final long seed;
+    private final int obstacleCount;
+    // Ticks holding an input other than NONE, in increasing order
+    private long[] ticks = new long[64];
+    private byte[] inputs = new byte[64];
+    private int size;
+    private long endTick = -1;
+
+    public InputLog(long seed, int obstacleCount) {
+        this.seed = seed;
+        this.obstacleCount = obstacleCount;
+    }
+
+    // Remembers the input applied on the given tick, NONE is implied for every tick not recorded
+    public void record(long tick, Input input) {
+        if (input == Input.NONE) return;
+        if (size > 0 && tick <= ticks[size - 1]) {
+            throw new IllegalArgumentException("Ticks must be recorded in increasing order: " + tick);
+        }
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            inputs = Arrays.copyOf(inputs, size * 2);
+        }
+        ticks[size] = tick;
+        inputs[size] = (byte) input.ordinal();
+        size++;
+    }
+
+    // Number of ticks the recorded session lasted
+    public void finish(long endTick) {
+        this.endTick = endTick;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getObstacleCount() {
+        return obstacleCount;
+    }
+
+    // Ticks the session lasted, or -1 if it was not finished
+    public long getEndTick() {
+        return endTick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeLong(seed);
+        output.writeInt(obstacleCount);
+        writeVarLong(output, endTick + 1);
+        writeVarLong(output, size);
+
+        // Each event is the distance in ticks from the previous one followed by the input
+        long previousTick = 0;
+        for (int index = 0; index < size; index++) {
+            writeVarLong(output, ticks[index] - previousTick);
+            output.writeByte(inputs[index]);
+            previousTick = ticks[index];
+        }
+        output.flush();
+    }
+
+    public static InputLog readFrom(InputStream inputStream) throws IOException {
+        return readFrom(inputStream, Long.MAX_VALUE);
+    }
+
+    // Length is the size of the whole replay when it is known, it bounds how many events the file can hold
+    public static InputLog readFrom(InputStream inputStream, long length) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != MAGIC) throw new IOException("Not a replay file");
+        int version = input.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+
+        InputLog log = new InputLog(input.readLong(), input.readInt());
+        log.endTick = readVarLong(input) - 1;
+        long events = readVarLong(input);
+
+        // Every event has its own tick before the end and takes at least two bytes, more than that is a corrupt file
+        long fitting = log.endTick >= 0 ? Math.min(length / 2, log.endTick) : length / 2;
+        if (events < 0 || events > Math.min(fitting, Integer.MAX_VALUE)) {
+            throw new IOException("Corrupt replay, " + Long.toUnsignedString(events) + " events do not fit");
+        }
+        if (length != Long.MAX_VALUE && events > log.ticks.length) {
+            log.ticks = new long[(int) events];
+            log.inputs = new byte[(int) events];
+        }
+
+        long tick = 0;
+        for (long index = 0; index < events; index++) {
+            long delta = readVarLong(input);
+            if (delta < 0 || index > 0 && delta == 0) {
+                throw new IOException("Corrupt replay, event " + index + " repeats a tick");
+            }
+            tick += delta;
+            if (tick < 0 || log.endTick >= 0 && tick >= log.endTick) {
+                throw new IOException("Corrupt replay, event " + index + " is after the end");
+            }
+            int ordinal = input.readUnsignedByte();
+            if (ordinal >= INPUTS.length) throw new IOException("Unknown input " + ordinal);
+            log.record(tick, INPUTS[ordinal]);
+        }
+        return log;
+    }
+
+    public void save(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        try (OutputStream output = new FileOutputStream(file)) {
+            writeTo(output);
+        }
+    }
+
+    public static InputLog load(File file) throws IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            return readFrom(input, file.length());
+        }
+    }
+
+    // Unsigned LEB128, seven bits per byte with the high bit set on every byte but the last
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int current = input.readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    // Walks the log forward, one tick at a time
+    public class Cursor {
+        private int position;
+
+        public Input inputAt(long tick) {
+            while (position < size && ticks[position] < tick) position++;
+            return position < size && ticks[position] == tick ? INPUTS[inputs[position]] : Input.NONE;
+        }
+
+        public boolean isFinished(long tick) {
+            return endTick >= 0 && tick >= endTick;
+        }
+    }
+
+}
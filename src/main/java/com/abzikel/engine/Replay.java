@@ -0,0 +1,15 @@
+package com.abzikel.engine;
+
+public class Replay {
+
+    // Plays a recorded session back as fast as possible and returns the engine in its final state
+    public static GameEngine run(InputLog log, CollisionMasks collisionMasks, long maxTicks) {
+        GameEngine engine = new GameEngine(log.getObstacleCount(), collisionMasks, log.getSeed());
+        InputLog.Cursor cursor = log.cursor();
+        while (!engine.isFinished() && !cursor.isFinished(engine.getTicks()) && engine.getTicks() < maxTicks) {
+            engine.step(cursor.inputAt(engine.getTicks()));
+        }
+        return engine;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.abzikel.loop;
+
+import com.abzikel.engine.CourseChunk;
+import com.abzikel.engine.CourseGenerator;
+import com.abzikel.engine.CourseSource;
+
+import java.util.Arrays;
+
+// Generates upcoming chunks on a background thread so the game loop only takes finished ones
+public class CourseStream implements CourseSource {
+    private final String name;
+    // Chunk i waits in slot i % length, the worker stays a full ring ahead of the consumer
+    private final CourseChunk[] chunks;
+    private long seed;
+    private int generation;    // Changes on every reset, chunks of an older course are thrown away
+    private int nextIndex;     // Next chunk the consumer takes
+    private int producedIndex; // Chunks below this index are in the ring
+    private int stalls;
+    private Thread worker;
+
+    // A chunk covers several seconds of play, a ring of a few of them never runs dry
+    public CourseStream(String name, int capacity) {
+        this.name = name;
+        chunks = new CourseChunk[capacity];
+    }
+
+    // Called by the consumer, or while it is stopped, returns once the ring is full
+    @Override
+    public synchronized void reset(long seed) {
+        this.seed = seed;
+        generation++;
+        nextIndex = 0;
+        producedIndex = 0;
+        Arrays.fill(chunks, null);
+
+        // Daemon thread, it spends its time waiting for the consumer to make room
+        if (worker == null) {
+            worker = new Thread(this::generate, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        notifyAll();
+
+        try {
+            while (producedIndex < chunks.length) wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Never builds a chunk itself, at worst it waits the few microseconds the worker needs for one
+    @Override
+    public synchronized CourseChunk next() {
+        if (producedIndex <= nextIndex) {
+            stalls++;
+            try {
+                while (producedIndex <= nextIndex) {
+                    if (worker == null) throw new IllegalStateException("Course stream is closed");
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a course chunk", e);
+            }
+        }
+
+        int slot = nextIndex % chunks.length;
+        CourseChunk chunk = chunks[slot];
+        chunks[slot] = null;
+        nextIndex++;
+        notifyAll();
+        return chunk;
+    }
+
+    // Number of chunks the consumer had to wait for because none was ready
+    public synchronized int getStalls() {
+        return stalls;
+    }
+
+    // Stops the worker, the next reset starts a new one
+    public synchronized void close() {
+        if (worker == null) return;
+        worker.interrupt();
+        worker = null;
+        notifyAll();
+    }
+
+    private void generate() {
+        Thread self = Thread.currentThread();
+        while (true) {
+            long currentSeed;
+            int currentGeneration;
+            int index;
+            synchronized (this) {
+                try {
+                    while (worker == self && producedIndex - nextIndex >= chunks.length) wait();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (worker != self) return;
+                currentSeed = seed;
+                currentGeneration = generation;
+                index = producedIndex;
+            }
+
+            // Built outside the lock so the consumer never waits on a chunk it does not need yet
+            CourseChunk chunk = CourseGenerator.generate(currentSeed, index);
+            synchronized (this) {
+                if (currentGeneration != generation) continue;
+                chunks[index % chunks.length] = chunk;
+                producedIndex = index + 1;
+                notifyAll();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.abzikel.loop;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class GameLoop implements Runnable {
+    // Never simulate more than this many steps to catch up after a stall
+    private static final int MAX_CATCH_UP_STEPS = 5;
+    // Below this remaining time the loop yields instead of parking, parking is too coarse on some platforms
+    private static final long SPIN_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(1);
+    private final String name;
+    private final long stepNanos;
+    private final long frameNanos;
+    private final Runnable update;
+    private final Runnable render;
+    private volatile boolean running;
+    private Thread thread;
+
+    public GameLoop(String name, long stepNanos, long frameNanos, Runnable update, Runnable render) {
+        this.name = name;
+        this.stepNanos = stepNanos;
+        this.frameNanos = frameNanos;
+        this.update = update;
+        this.render = render;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+
+        // A loop stopped from its own thread may still be finishing its last iteration
+        stop();
+
+        // Run the simulation on its own thread so EDT load does not affect it
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Returns once the loop thread has exited, unless it is called from the loop itself
+    public void stop() {
+        running = false;
+
+        // Wake the loop up if it is waiting for the next step
+        Thread loopThread = thread;
+        if (loopThread == null || loopThread == Thread.currentThread()) return;
+        LockSupport.unpark(loopThread);
+        try {
+            loopThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    @Override
+    public void run() {
+        long previousTime = System.nanoTime();
+        long nextFrameTime = previousTime;
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previousTime;
+            previousTime = now;
+
+            // Drop the backlog after a long stall instead of fast-forwarding the game
+            if (accumulator > MAX_CATCH_UP_STEPS * stepNanos) accumulator = MAX_CATCH_UP_STEPS * stepNanos;
+
+            // Advance the simulation in fixed steps
+            while (accumulator >= stepNanos && running) {
+                update.run();
+                accumulator -= stepNanos;
+            }
+
+            // Request a frame when one is due, skipping frames that were missed
+            if (running && now - nextFrameTime >= 0) {
+                render.run();
+                nextFrameTime += frameNanos;
+                if (now - nextFrameTime >= 0) nextFrameTime = now + frameNanos;
+            }
+
+            // Wait until the next step or frame is due
+            long elapsed = System.nanoTime() - previousTime;
+            long waitTime = Math.min(stepNanos - accumulator - elapsed, nextFrameTime - System.nanoTime());
+            if (waitTime > SPIN_THRESHOLD) {
+                LockSupport.parkNanos(waitTime - SPIN_THRESHOLD);
+            } else if (waitTime > 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+}
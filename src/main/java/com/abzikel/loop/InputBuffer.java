@@ -0,0 +1,52 @@
+package com.abzikel.loop;
+
+import com.abzikel.engine.Input;
+import com.abzikel.pojos.InputEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free ring of timestamped inputs from one producer thread (the EDT) to one consumer (the game loop)
+public class InputBuffer {
+    private final Input[] inputs;
+    private final long[] timestamps;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next slot to read, only advanced by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write, only advanced by the producer
+
+    public InputBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two");
+        inputs = new Input[capacity];
+        timestamps = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    // Returns false and drops the input when the consumer is a whole buffer behind
+    public boolean offer(Input input, long timestamp) {
+        long position = tail.get();
+        if (position - head.get() > mask) return false;
+
+        int slot = (int) position & mask;
+        inputs[slot] = input;
+        timestamps[slot] = timestamp;
+        tail.lazySet(position + 1); // Publishes the slot written above
+        return true;
+    }
+
+    // Copies the oldest input into the event, returns false when there is none
+    public boolean poll(InputEvent event) {
+        long position = head.get();
+        if (position == tail.get()) return false;
+
+        int slot = (int) position & mask;
+        event.input = inputs[slot];
+        event.timestamp = timestamps[slot];
+        head.lazySet(position + 1); // Hands the slot back to the producer
+        return true;
+    }
+
+    // Drops every pending input, only called by the consumer or while it is stopped
+    public void clear() {
+        head.set(tail.get());
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.abzikel.loop;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class SnapshotBuffer<T> {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+    private final Object[] slots = new Object[3];
+    // Index of the shared slot, flagged as fresh when the writer published into it
+    private final AtomicInteger middle = new AtomicInteger(0);
+    private int back = 1;  // Only touched by the writer
+    private int front = 2; // Only touched by the reader
+
+    public SnapshotBuffer(Supplier<T> factory) {
+        for (int index = 0; index < slots.length; index++) {
+            slots[index] = factory.get();
+        }
+    }
+
+    // Slot the writer fills before publishing
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) slots[back];
+    }
+
+    // Hand the back slot to the reader and take the shared one in exchange
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    // Latest published slot, it stays valid until the next call
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return (T) slots[front];
+    }
+
+}
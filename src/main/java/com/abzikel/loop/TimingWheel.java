@@ -0,0 +1,130 @@
+package com.abzikel.loop;
+
+import java.util.List;
+
+// Hashed timing wheel: entries hang off the slot of their deadline tick, so scheduling and cancelling are O(1)
+// Not thread-safe, the owner serializes every call
+public class TimingWheel {
+    private final long tickNanos;
+    private final long startNanos;
+    private final Entry[] slots;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    // A reusable scheduled action, it can be scheduled again at any time, which moves it to its new deadline
+    public static class Entry {
+        private final Runnable action;
+        private Entry previous, next;
+        private long deadlineTick;
+        private long periodTicks;
+        private boolean scheduled;
+
+        public Entry(Runnable action) {
+            this.action = action;
+        }
+
+        public Runnable getAction() {
+            return action;
+        }
+
+        public boolean isScheduled() {
+            return scheduled;
+        }
+
+        public boolean isRepeating() {
+            return periodTicks > 0;
+        }
+    }
+
+    // The slot count is rounded up to a power of two, deadlines further away than a turn wait for later turns
+    public TimingWheel(long tickNanos, int slotCount, long startNanos) {
+        int size = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        slots = new Entry[size];
+        mask = size - 1;
+
+        // Each slot is a circular list around a sentinel
+        for (int index = 0; index < size; index++) {
+            Entry sentinel = new Entry(null);
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+            slots[index] = sentinel;
+        }
+    }
+
+    // Runs the entry once the delay from now has passed, then every period when the period is positive
+    public void schedule(Entry entry, long nowNanos, long delayNanos, long periodNanos) {
+        if (entry.scheduled) cancel(entry);
+
+        // An idle wheel is not advanced, catch up first so the next advance has no empty ticks to walk
+        if (size == 0) currentTick = Math.max(currentTick, (nowNanos - startNanos) / tickNanos);
+        entry.periodTicks = periodNanos > 0 ? Math.max(1, ticksFor(periodNanos)) : 0;
+        insert(entry, Math.max(currentTick + 1, ticksFor(nowNanos + delayNanos - startNanos)));
+    }
+
+    public void cancel(Entry entry) {
+        if (!entry.scheduled) return;
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+        entry.scheduled = false;
+        size--;
+    }
+
+    // Moves the wheel up to the given time and adds every entry that came due, repeating ones are scheduled again
+    public void advance(long nowNanos, List<Entry> expired) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+
+        // Nothing to visit, skip the idle time at once
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return;
+        }
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            Entry sentinel = slots[(int) (currentTick & mask)];
+            Entry entry = sentinel.next;
+            while (entry != sentinel) {
+                Entry next = entry.next;
+                if (entry.deadlineTick <= currentTick) {
+                    cancel(entry);
+                    expired.add(entry);
+
+                    // Fixed rate, but a period missed entirely is skipped rather than run twice
+                    if (entry.periodTicks > 0) insert(entry, Math.max(entry.deadlineTick + entry.periodTicks, currentTick + 1));
+                }
+                entry = next;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Time left until the wheel's next tick is due
+    public long nanosUntilNextTick(long nowNanos) {
+        return Math.max(0, startNanos + (currentTick + 1) * tickNanos - nowNanos);
+    }
+
+    private void insert(Entry entry, long deadlineTick) {
+        entry.deadlineTick = deadlineTick;
+        Entry sentinel = slots[(int) (deadlineTick & mask)];
+        entry.previous = sentinel.previous;
+        entry.next = sentinel;
+        sentinel.previous.next = entry;
+        sentinel.previous = entry;
+        entry.scheduled = true;
+        size++;
+    }
+
+    // Rounded up, an entry never runs early
+    private long ticksFor(long nanos) {
+        return (nanos + tickNanos - 1) / tickNanos;
+    }
+
+}
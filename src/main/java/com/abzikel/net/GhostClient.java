@@ -0,0 +1,141 @@
+package com.abzikel.net;
+
+import com.abzikel.pojos.GhostState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Sends this runner to the host every tick and keeps the latest runners it relays back, never blocks the caller
+public class GhostClient implements Closeable {
+    private final DatagramChannel channel;
+    private final GhostLink link = new GhostLink();
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(GhostLink.MAX_PACKET_BYTES);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(GhostLink.MAX_PACKET_BYTES);
+    private final GhostFrame ghosts = new GhostFrame(GhostLink.MAX_GHOSTS);
+    private long packetsSent, bytesSent, packetsReceived, bytesReceived;
+    private long raceSeed;
+    private boolean hasRaceSeed;
+
+    public GhostClient(InetSocketAddress host) throws IOException {
+        channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(host);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Sends the runner's state, a packet the socket cannot take right now is simply skipped
+    public void send(GhostState state) throws IOException {
+        link.nextFrame().add().set(state);
+        sendBuffer.clear();
+        link.write(sendBuffer);
+        sendBuffer.flip();
+
+        int bytes = sendBuffer.remaining();
+        try {
+            if (channel.write(sendBuffer) > 0) {
+                packetsSent++;
+                bytesSent += bytes;
+            }
+        } catch (PortUnreachableException e) {
+            // No host yet, the next packets keep trying
+        }
+    }
+
+    // Reads every packet waiting on the socket, returns true when the ghosts changed
+    public boolean poll() throws IOException {
+        boolean updated = false;
+        while (true) {
+            receiveBuffer.clear();
+            int bytes;
+            try {
+                bytes = channel.read(receiveBuffer);
+            } catch (PortUnreachableException e) {
+                break;
+            }
+            if (bytes <= 0) break;
+            packetsReceived++;
+            bytesReceived += bytes;
+
+            // Only the newest frame matters, older or undecodable ones are dropped
+            receiveBuffer.flip();
+            GhostFrame frame = link.read(receiveBuffer);
+            if (frame == null) continue;
+            raceSeed = frame.raceSeed;
+            hasRaceSeed = true;
+            ghosts.reset(frame.sequence);
+            for (int index = 0; index < frame.count; index++) ghosts.add().set(frame.states[index]);
+            link.lastReceiveNanos = System.nanoTime();
+            updated = true;
+        }
+
+        // Forget the ghosts once the host has gone quiet
+        if (!updated && ghosts.count > 0 && System.nanoTime() - link.lastReceiveNanos > GhostLink.TIMEOUT_NANOS) {
+            ghosts.count = 0;
+            updated = true;
+        }
+        return updated;
+    }
+
+    // Sends the state until the host answers or the time runs out, only while nothing else uses the client
+    public boolean awaitHost(GhostState state, long timeoutNanos) throws IOException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        long received = packetsReceived;
+        while (System.nanoTime() - deadline < 0) {
+            send(state);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            poll();
+            if (packetsReceived > received && hasRaceSeed) return true;
+        }
+        return false;
+    }
+
+    // Course seed of the race, as of the latest packet from the host
+    public boolean hasRaceSeed() {
+        return hasRaceSeed;
+    }
+
+    public long getRaceSeed() {
+        return raceSeed;
+    }
+
+    // Other runners, as of the latest packet from the host
+    public int getGhostCount() {
+        return ghosts.count;
+    }
+
+    public GhostState getGhost(int index) {
+        return ghosts.states[index];
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.abzikel.net;
+
+import com.abzikel.pojos.GhostState;
+
+// The runners carried by one packet, reused once its sequence number falls out of the link history
+class GhostFrame {
+    int sequence = -1;
+    int count;
+    long raceSeed; // Course every runner of the race plays, set by the host
+    GhostState[] states;
+
+    GhostFrame(int capacity) {
+        states = new GhostState[capacity];
+        for (int index = 0; index < capacity; index++) states[index] = new GhostState();
+    }
+
+    void reset(int sequence) {
+        this.sequence = sequence;
+        count = 0;
+        raceSeed = 0;
+    }
+
+    // The next free state, filled in by the caller
+    GhostState add() {
+        return states[count++];
+    }
+
+    GhostState find(int playerId) {
+        for (int index = 0; index < count; index++) {
+            if (states[index].playerId == playerId) return states[index];
+        }
+        return null;
+    }
+}
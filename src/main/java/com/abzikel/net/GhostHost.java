@@ -0,0 +1,208 @@
+package com.abzikel.net;
+
+import com.abzikel.pojos.GhostState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Relays every runner to every other one, each packet from a client is answered with the others' latest states
+public class GhostHost implements Runnable, Closeable {
+    private static final long SELECT_MILLIS = TimeUnit.NANOSECONDS.toMillis(GhostLink.TIMEOUT_NANOS) / 3;
+    private static final Logger logger = Logger.getLogger(GhostHost.class.getName());
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final Map<SocketAddress, Peer> peers = new HashMap<>();
+    private final List<Peer> peerList = new ArrayList<>();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(GhostLink.MAX_PACKET_BYTES);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(GhostLink.MAX_PACKET_BYTES);
+    private volatile long raceSeed = new Random().nextLong();
+    private volatile boolean running;
+    private volatile long packetsReceived, packetsSent, bytesSent;
+    private Thread thread;
+
+    // A connected client, known by its address and shown to the others under a small id
+    private static class Peer {
+        final SocketAddress address;
+        final int playerId;
+        final GhostLink link = new GhostLink();
+        final GhostState state = new GhostState();
+        boolean hasState;
+
+        Peer(SocketAddress address, int playerId) {
+            this.address = address;
+            this.playerId = playerId;
+        }
+    }
+
+    public GhostHost(int port) throws IOException {
+        channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(port));
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "CuteRunner-GhostHost");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Every client starts its next game on this seed, so the whole race plays the same course
+    public void setRaceSeed(long raceSeed) {
+        this.raceSeed = raceSeed;
+    }
+
+    public long getRaceSeed() {
+        return raceSeed;
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    // The host thread's id, to read its CPU time
+    public long getThreadId() {
+        return thread.getId();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(SELECT_MILLIS);
+                selector.selectedKeys().clear();
+                receivePackets();
+                removeQuietPeers();
+            } catch (IOException e) {
+                if (running) logger.log(Level.WARNING, "Ghost host error", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        selector.close();
+        channel.close();
+    }
+
+    private void receivePackets() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress address = channel.receive(receiveBuffer);
+            if (address == null) return;
+            packetsReceived++;
+
+            Peer peer = peers.get(address);
+            if (peer == null) peer = addPeer(address);
+
+            // Keep the client's latest runner and answer with everyone else's
+            receiveBuffer.flip();
+            GhostFrame frame = peer.link.read(receiveBuffer);
+            if (frame == null || frame.count == 0) continue;
+            peer.state.set(frame.states[0]);
+            peer.state.playerId = peer.playerId;
+            peer.hasState = true;
+            peer.link.lastReceiveNanos = System.nanoTime();
+            reply(peer);
+        }
+    }
+
+    private void reply(Peer peer) throws IOException {
+        GhostFrame frame = peer.link.nextFrame();
+        frame.raceSeed = raceSeed;
+        for (Peer other : peerList) {
+            if (other == peer || !other.hasState) continue;
+            if (frame.count == GhostLink.MAX_GHOSTS) break;
+            frame.add().set(other.state);
+        }
+
+        sendBuffer.clear();
+        peer.link.write(sendBuffer);
+        sendBuffer.flip();
+
+        // A full socket buffer drops the reply, the client gets the next one a tick later
+        int bytes = sendBuffer.remaining();
+        if (channel.send(sendBuffer, peer.address) > 0) {
+            packetsSent++;
+            bytesSent += bytes;
+        }
+    }
+
+    // Ids start at 1 and are reused once a client has left
+    private Peer addPeer(SocketAddress address) {
+        int playerId = 1;
+        for (boolean taken = true; taken; ) {
+            taken = false;
+            for (Peer other : peerList) {
+                if (other.playerId == playerId) {
+                    playerId++;
+                    taken = true;
+                }
+            }
+        }
+
+        Peer peer = new Peer(address, playerId);
+        peer.link.lastReceiveNanos = System.nanoTime();
+        peers.put(address, peer);
+        peerList.add(peer);
+        logger.info("Ghost " + playerId + " joined from " + address);
+        return peer;
+    }
+
+    private void removeQuietPeers() {
+        long now = System.nanoTime();
+        for (Iterator<Peer> iterator = peerList.iterator(); iterator.hasNext(); ) {
+            Peer peer = iterator.next();
+            if (now - peer.link.lastReceiveNanos > GhostLink.TIMEOUT_NANOS) {
+                iterator.remove();
+                peers.remove(peer.address);
+                logger.info("Ghost " + peer.playerId + " left");
+            }
+        }
+    }
+
+}
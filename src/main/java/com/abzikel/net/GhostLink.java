@@ -0,0 +1,173 @@
+package com.abzikel.net;
+
+import com.abzikel.pojos.GhostState;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Numbered frames between two peers, each one delta-encoded against the latest frame the other side acknowledged
+class GhostLink {
+    // Runners per packet, at most about 30 bytes each so a full packet stays far below the usual MTU
+    static final int MAX_GHOSTS = 40;
+    static final int MAX_PACKET_BYTES = 1400;
+    // A peer that sent nothing for this long is gone
+    static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(3);
+    // Frames kept on both sides, a delta is only sent against a frame the receiver still has
+    private static final int HISTORY = 32;
+    private static final short MAGIC = 0x4752; // "GR"
+    private static final GhostState EMPTY = new GhostState();
+    private static final int TICK = 1, POSITION = 2, FRAME = 4, SCORE = 8, FLAGS = 16;
+    private final GhostFrame[] sent = new GhostFrame[HISTORY];
+    private final GhostFrame[] received = new GhostFrame[HISTORY];
+    // Numbers this side of the link, the peer starts over when it sees a new one
+    private final int epoch = ThreadLocalRandom.current().nextInt();
+    private int peerEpoch;
+    private int nextSequence;
+    private int ackedSequence = -1;    // Latest of our frames the peer reported having
+    private int receivedSequence = -1; // Latest frame received from the peer, acknowledged in every packet
+    long lastReceiveNanos;
+
+    GhostLink() {
+        for (int index = 0; index < HISTORY; index++) {
+            sent[index] = new GhostFrame(MAX_GHOSTS);
+            received[index] = new GhostFrame(MAX_GHOSTS);
+        }
+    }
+
+    // The frame to fill in before the next write
+    GhostFrame nextFrame() {
+        GhostFrame frame = sent[nextSequence % HISTORY];
+        frame.reset(nextSequence);
+        return frame;
+    }
+
+    // Encodes the frame returned by nextFrame
+    void write(ByteBuffer out) {
+        GhostFrame frame = sent[nextSequence % HISTORY];
+        GhostFrame base = ackedSequence >= 0 && nextSequence - ackedSequence < HISTORY
+                ? sent[ackedSequence % HISTORY]
+                : null;
+
+        out.putShort(MAGIC);
+        out.putInt(epoch);
+        out.putInt(nextSequence);
+        out.putInt(receivedSequence);
+        out.putInt(base != null ? base.sequence : -1);
+        out.putLong(frame.raceSeed);
+        putVarLong(out, frame.count);
+        for (int index = 0; index < frame.count; index++) {
+            GhostState state = frame.states[index];
+            GhostState previous = base != null ? base.find(state.playerId) : null;
+            writeState(out, state, previous != null ? previous : EMPTY);
+        }
+        nextSequence++;
+    }
+
+    // The decoded frame, or null for a stale packet, one whose base is gone, or one that is not a ghost packet
+    GhostFrame read(ByteBuffer in) {
+        try {
+            if (in.getShort() != MAGIC) return null;
+
+            // A peer that restarted numbers its frames from scratch
+            int senderEpoch = in.getInt();
+            if (senderEpoch != peerEpoch) {
+                peerEpoch = senderEpoch;
+                receivedSequence = -1;
+                ackedSequence = -1;
+                for (GhostFrame frame : received) frame.reset(-1);
+            }
+
+            int sequence = in.getInt();
+            int ack = in.getInt();
+            int baseSequence = in.getInt();
+            if (ack > ackedSequence && ack < nextSequence) ackedSequence = ack;
+            if (sequence <= receivedSequence) return null;
+
+            // A frame without a base is complete, otherwise its base must still be in the history
+            GhostFrame base = null;
+            if (baseSequence >= 0) {
+                base = received[baseSequence % HISTORY];
+                if (base.sequence != baseSequence || sequence - baseSequence >= HISTORY) return null;
+            }
+
+            long raceSeed = in.getLong();
+            int count = (int) getVarLong(in);
+            if (count > MAX_GHOSTS) return null;
+            GhostFrame frame = received[sequence % HISTORY];
+            frame.reset(sequence);
+            frame.raceSeed = raceSeed;
+            for (int index = 0; index < count; index++) {
+                int playerId = (int) getVarLong(in);
+                GhostState previous = base != null ? base.find(playerId) : null;
+                readState(in, frame.add(), playerId, previous != null ? previous : EMPTY);
+            }
+            receivedSequence = sequence;
+            return frame;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    // Only the fields that changed since the base are written, numbers as variable-length deltas
+    private static void writeState(ByteBuffer out, GhostState state, GhostState base) {
+        int flags = (state.isJumping ? 1 : 0) | (state.isGameOver ? 2 : 0);
+        int baseFlags = (base.isJumping ? 1 : 0) | (base.isGameOver ? 2 : 0);
+        int mask = (state.tick != base.tick ? TICK : 0)
+                | (state.characterPositionAxisY != base.characterPositionAxisY ? POSITION : 0)
+                | (state.currentFrame != base.currentFrame ? FRAME : 0)
+                | (state.obstaclesDodged != base.obstaclesDodged ? SCORE : 0)
+                | (flags != baseFlags ? FLAGS : 0);
+
+        putVarLong(out, state.playerId);
+        out.put((byte) mask);
+        if ((mask & TICK) != 0) putVarLong(out, zigZag(state.tick - base.tick));
+        if ((mask & POSITION) != 0) putVarLong(out, zigZag(state.characterPositionAxisY - base.characterPositionAxisY));
+        if ((mask & FRAME) != 0) putVarLong(out, state.currentFrame);
+        if ((mask & SCORE) != 0) putVarLong(out, zigZag(state.obstaclesDodged - base.obstaclesDodged));
+        if ((mask & FLAGS) != 0) out.put((byte) flags);
+    }
+
+    private static void readState(ByteBuffer in, GhostState state, int playerId, GhostState base) {
+        state.set(base);
+        state.playerId = playerId;
+        int mask = in.get();
+        if ((mask & TICK) != 0) state.tick = base.tick + unZigZag(getVarLong(in));
+        if ((mask & POSITION) != 0) state.characterPositionAxisY = base.characterPositionAxisY + (int) unZigZag(getVarLong(in));
+        if ((mask & FRAME) != 0) state.currentFrame = (int) getVarLong(in);
+        if ((mask & SCORE) != 0) state.obstaclesDodged = base.obstaclesDodged + (int) unZigZag(getVarLong(in));
+        if ((mask & FLAGS) != 0) {
+            int flags = in.get();
+            state.isJumping = (flags & 1) != 0;
+            state.isGameOver = (flags & 2) != 0;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Seven bits per byte, small numbers take a single byte
+    private static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte next = in.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) return value;
+        }
+        throw new BufferUnderflowException();
+    }
+}
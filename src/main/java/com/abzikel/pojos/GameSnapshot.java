@@ -0,0 +1,54 @@
+package com.abzikel.pojos;
+
+public class GameSnapshot {
+    public long tick;
+    public long tickTime;
+    public long jumpInputTime; // Key event behind the latest jump, 0 before the first one
+    public int backgroundPosition, nextBackgroundPosition, backgroundSpeed;
+    public int characterPositionAxisY, jumpVelocity;
+    public int currentFrame;
+    public int obstaclesDodged;
+    public boolean isJumping, isGameOver, showDeath;
+    public int cloudCount, obstacleCount;
+    public int[] cloudPositionX, cloudPositionY, cloudSpeed;
+    public float[] cloudScale;
+    public int[] obstaclePositionX, obstaclePositionY, obstacleSpeed, obstacleType;
+    public int ghostCount; // Other runners in a ghost race
+    public int[] ghostPositionY = new int[0], ghostFrame = new int[0];
+    public boolean[] ghostJumping = new boolean[0];
+
+    public GameSnapshot(int cloudCapacity, int obstacleCapacity) {
+        cloudPositionX = new int[cloudCapacity];
+        cloudPositionY = new int[cloudCapacity];
+        cloudSpeed = new int[cloudCapacity];
+        cloudScale = new float[cloudCapacity];
+        obstaclePositionX = new int[obstacleCapacity];
+        obstaclePositionY = new int[obstacleCapacity];
+        obstacleSpeed = new int[obstacleCapacity];
+        obstacleType = new int[obstacleCapacity];
+    }
+
+    // Grows the entity arrays, they are only reallocated when the entity count outgrows them
+    public void ensureCapacity(int cloudCapacity, int obstacleCapacity) {
+        if (cloudCapacity > cloudPositionX.length) {
+            cloudPositionX = new int[cloudCapacity];
+            cloudPositionY = new int[cloudCapacity];
+            cloudSpeed = new int[cloudCapacity];
+            cloudScale = new float[cloudCapacity];
+        }
+        if (obstacleCapacity > obstaclePositionX.length) {
+            obstaclePositionX = new int[obstacleCapacity];
+            obstaclePositionY = new int[obstacleCapacity];
+            obstacleSpeed = new int[obstacleCapacity];
+            obstacleType = new int[obstacleCapacity];
+        }
+    }
+
+    public void ensureGhostCapacity(int ghostCapacity) {
+        if (ghostCapacity > ghostPositionY.length) {
+            ghostPositionY = new int[ghostCapacity];
+            ghostFrame = new int[ghostCapacity];
+            ghostJumping = new boolean[ghostCapacity];
+        }
+    }
+}
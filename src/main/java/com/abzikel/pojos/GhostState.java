@@ -0,0 +1,20 @@
+package com.abzikel.pojos;
+
+public class GhostState {
+    public int playerId;
+    public long tick;
+    public int characterPositionAxisY;
+    public int currentFrame;
+    public int obstaclesDodged;
+    public boolean isJumping, isGameOver;
+
+    public void set(GhostState other) {
+        playerId = other.playerId;
+        tick = other.tick;
+        characterPositionAxisY = other.characterPositionAxisY;
+        currentFrame = other.currentFrame;
+        obstaclesDodged = other.obstaclesDodged;
+        isJumping = other.isJumping;
+        isGameOver = other.isGameOver;
+    }
+}
@@ -0,0 +1,8 @@
+package com.abzikel.pojos;
+
+import com.abzikel.engine.Input;
+
+public class InputEvent {
+    public Input input;
+    public long timestamp; // System.nanoTime() of the key event
+}
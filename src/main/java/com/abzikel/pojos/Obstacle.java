@@ -1,10 +0,0 @@
-package com.abzikel.pojos;
-
-public class Obstacle {
-    public int positionX, positionY;
-
-    public Obstacle(int positionX, int positionY) {
-        this.positionX = positionX;
-        this.positionY = positionY;
-    }
-}
@@ -0,0 +1,19 @@
+package com.abzikel.pojos;
+
+public class RunResult {
+    public long time;          // System.currentTimeMillis() when the run ended
+    public long seed;
+    public long ticks;         // Duration of the run in simulation steps
+    public int obstaclesDodged;
+    public int obstacleCount;  // Target of the run, 0 in infinite mode
+    public boolean won;
+
+    public RunResult(long time, long seed, long ticks, int obstaclesDodged, int obstacleCount, boolean won) {
+        this.time = time;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.obstaclesDodged = obstaclesDodged;
+        this.obstacleCount = obstacleCount;
+        this.won = won;
+    }
+}
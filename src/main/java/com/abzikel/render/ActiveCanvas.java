@@ -0,0 +1,72 @@
+package com.abzikel.render;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.function.Consumer;
+
+public class ActiveCanvas extends Canvas {
+    private final int bufferCount;
+    private volatile BufferStrategy strategy;
+    private volatile Consumer<Graphics> lastPainter;
+
+    public ActiveCanvas(int bufferCount) {
+        this.bufferCount = bufferCount;
+
+        // Frames are drawn by the game loop, Swing never repaints this canvas
+        setIgnoreRepaint(true);
+        setFocusable(false);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+
+        // Page flipping needs a native peer, which only exists from now on
+        createBufferStrategy(bufferCount);
+        strategy = getBufferStrategy();
+    }
+
+    @Override
+    public void removeNotify() {
+        BufferStrategy current = strategy;
+        strategy = null;
+        if (current != null) current.dispose();
+        super.removeNotify();
+    }
+
+    // Only reached once repaints are enabled again, for example when the game loop has stopped
+    @Override
+    public void paint(Graphics g) {
+        Consumer<Graphics> painter = lastPainter;
+        if (painter != null) render(painter);
+    }
+
+    @Override
+    public void update(Graphics g) {
+        paint(g);
+    }
+
+    // Draws a frame into the back buffer and flips it, redrawing if the buffer contents were lost
+    public void render(Consumer<Graphics> painter) {
+        lastPainter = painter;
+        BufferStrategy current = strategy;
+        if (current == null) return;
+
+        do {
+            do {
+                Graphics g = current.getDrawGraphics();
+                try {
+                    painter.accept(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (current.contentsRestored());
+
+            current.show();
+        } while (current.contentsLost());
+
+        // Push the frame to the display right away on platforms that buffer drawing commands
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+}
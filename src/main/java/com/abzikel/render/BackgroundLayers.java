@@ -0,0 +1,67 @@
+package com.abzikel.render;
+
+import com.abzikel.engine.GameEngine;
+import com.abzikel.utils.SpriteCache;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class BackgroundLayers {
+    private static final int WIDTH = GameEngine.WIDTH;
+    private static final int HEIGHT = GameEngine.HEIGHT;
+    private static final int GROUND = GameEngine.GROUND;
+    private final BufferedImage sky;
+    private final BufferedImage groundStrip;
+
+    public BackgroundLayers(SpriteCache spriteCache) {
+        // The sky never changes, so the gradient and its texture are drawn only once
+        sky = spriteCache.createCompatibleImage(WIDTH, HEIGHT, Transparency.OPAQUE);
+        Graphics2D g2d = sky.createGraphics();
+        drawGradient(g2d);
+        drawTexture(g2d);
+        g2d.dispose();
+
+        // Two ground tiles side by side so a scrolled strip always covers the screen
+        Image ground = spriteCache.loadImage("/images/background_game.png", WIDTH, GROUND);
+        groundStrip = spriteCache.createCompatibleImage(WIDTH * 2, GROUND, Transparency.TRANSLUCENT);
+        g2d = groundStrip.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(ground, 0, 0, null);
+        g2d.drawImage(ground, WIDTH, 0, null);
+        g2d.dispose();
+    }
+
+    public void drawSky(Graphics g) {
+        g.drawImage(sky, 0, 0, null);
+    }
+
+    // The offset is the position of either ground tile, the strip wraps around it
+    public void drawGround(Graphics g, int offset) {
+        offset %= WIDTH;
+        if (offset > 0) offset -= WIDTH;
+        g.drawImage(groundStrip, offset, HEIGHT - GROUND, null);
+    }
+
+    private void drawGradient(Graphics2D g2d) {
+        GradientPaint gradient = new GradientPaint(
+                0, 0, new Color(255, 182, 193),
+                0, HEIGHT, new Color(221, 160, 221)
+        );
+        g2d.setPaint(gradient);
+        g2d.fillRect(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void drawTexture(Graphics2D g2d) {
+        // Create the texture to be applied over the gradient
+        BufferedImage textureImage = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D textureG2D = textureImage.createGraphics();
+        textureG2D.setColor(new Color(255, 255, 255, 80));
+        textureG2D.fillOval(4, 4, 4, 4);
+        textureG2D.fillOval(12, 12, 2, 2);
+        textureG2D.dispose();
+
+        g2d.setPaint(new TexturePaint(textureImage, new Rectangle(0, 0, 16, 16)));
+        g2d.fillRect(0, 0, WIDTH, HEIGHT);
+    }
+
+}
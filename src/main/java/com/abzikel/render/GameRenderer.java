@@ -0,0 +1,200 @@
+package com.abzikel.render;
+
+import com.abzikel.engine.GameEngine;
+import com.abzikel.pojos.GameSnapshot;
+import com.abzikel.utils.SpriteCache;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class GameRenderer {
+    private static final int FEET = GameEngine.FEET;
+    private static final int CHARACTER_X = GameEngine.CHARACTER_X;
+    private static final int CHARACTER_SIZE = GameEngine.CHARACTER_SIZE;
+    private static final int DEATH_WIDTH = 135;
+    private static final int DEATH_HEIGHT = 110;
+    private static final int OBSTACLE_SIZE = GameEngine.OBSTACLE_SIZE;
+    private static final int CLOUD_WIDTH = 100;
+    private static final int CLOUD_HEIGHT = 50;
+    // Cloud scales are drawn from pre-rendered images in steps of 1/CLOUD_SCALE_STEPS
+    private static final int CLOUD_SCALE_STEPS = 20;
+    private static final double MAX_CLOUD_SCALE = 1.5;
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final AlphaComposite GHOST_COMPOSITE = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.35f);
+    private static final char[] SCORE_LABEL = "Obstacles Dodged: ".toCharArray();
+    private final BackgroundLayers backgroundLayers;
+    private final SpriteCache.Animation runSprites, jumpSprites, deathSprites;
+    private final Image obstacleImage;
+    private final Image[] cloudImages;
+    private final char[] scoreText = new char[SCORE_LABEL.length + 10];
+    private int scoreLength;
+    private int scoreValue = -1;
+    private Image lastCharacterImage; // Drawn again while a dropped animation is rebuilt
+    private final long tickNanos;
+    private float renderAlpha;
+
+    public GameRenderer(SpriteCache spriteCache, long tickNanos) {
+        this.tickNanos = tickNanos;
+
+        // Static sky and pre-tiled ground
+        backgroundLayers = new BackgroundLayers(spriteCache);
+
+        // Load images
+        obstacleImage = spriteCache.loadImage("/images/obstacle.png", OBSTACLE_SIZE, OBSTACLE_SIZE);
+
+        // Load sprites
+        runSprites = spriteCache.loadAnimation("Run", GameEngine.RUN_FRAMES, CHARACTER_SIZE, CHARACTER_SIZE);
+        jumpSprites = spriteCache.loadAnimation("Jump", GameEngine.JUMP_FRAMES, CHARACTER_SIZE, CHARACTER_SIZE);
+        deathSprites = spriteCache.loadAnimation("Dead", GameEngine.DEATH_FRAMES, DEATH_WIDTH, DEATH_HEIGHT);
+
+        // Clouds are blitted instead of filling a transformed oval per cloud
+        cloudImages = createCloudImages(spriteCache);
+
+        // Score text lives in a reusable buffer
+        System.arraycopy(SCORE_LABEL, 0, scoreText, 0, SCORE_LABEL.length);
+    }
+
+    // Area the character can cover at this height, running or dead, so it can be repainted on its own
+    public Rectangle getCharacterBounds(int characterPositionAxisY, Rectangle bounds) {
+        bounds.setBounds(CHARACTER_X, characterPositionAxisY,
+                Math.max(CHARACTER_SIZE, DEATH_WIDTH), Math.max(CHARACTER_SIZE, DEATH_HEIGHT));
+        return bounds;
+    }
+
+    // Draws the snapshot interpolated by the time elapsed since it was taken
+    public void render(Graphics g, GameSnapshot snapshot) {
+        float alpha = (float) (System.nanoTime() - snapshot.tickTime) / tickNanos;
+        render(g, snapshot, alpha);
+    }
+
+    // Draws the snapshot interpolated by a fraction of a tick between 0 and 1
+    public void render(Graphics g, GameSnapshot snapshot, float alpha) {
+        renderAlpha = Math.max(0f, Math.min(1f, alpha));
+        backgroundLayers.drawSky(g);  // Draw gradient background and texture
+        drawBackground(g, snapshot);  // Draw ground images
+        drawClouds(g, snapshot);      // Draw clouds
+        drawObstacles(g, snapshot);   // Draw obstacles
+        drawGhosts(g, snapshot);      // Draw the other runners of a ghost race
+        drawCharacter(g, snapshot);   // Draw the character
+        drawScore(g, snapshot);       // Draw score
+    }
+
+    private int interpolate(int position, int velocity) {
+        return position + Math.round(velocity * renderAlpha);
+    }
+
+    private void drawScore(Graphics g, GameSnapshot snapshot) {
+        // Only rewrite the digits when the score changes
+        if (snapshot.obstaclesDodged != scoreValue) updateScoreText(snapshot.obstaclesDodged);
+
+        g.setFont(SCORE_FONT);
+        g.setColor(Color.BLACK);
+        g.drawChars(scoreText, 0, scoreLength, 10, 30);
+    }
+
+    private void updateScoreText(int score) {
+        scoreValue = score;
+
+        // Write the digits right after the label without creating a String
+        int digits = 1;
+        for (int remaining = score / 10; remaining > 0; remaining /= 10) digits++;
+        scoreLength = SCORE_LABEL.length + digits;
+        for (int index = scoreLength - 1; index >= SCORE_LABEL.length; index--) {
+            scoreText[index] = (char) ('0' + score % 10);
+            score /= 10;
+        }
+    }
+
+    private void drawClouds(Graphics g, GameSnapshot snapshot) {
+        for (int index = 0; index < snapshot.cloudCount; index++) {
+            // Pick the pre-rendered image closest to the cloud's scale
+            int step = Math.round(snapshot.cloudScale[index] * CLOUD_SCALE_STEPS);
+            Image cloudImage = cloudImages[Math.max(0, Math.min(cloudImages.length - 1, step))];
+
+            // Draw the cloud
+            int positionX = interpolate(snapshot.cloudPositionX[index], -snapshot.cloudSpeed[index]);
+            g.drawImage(cloudImage, positionX, snapshot.cloudPositionY[index], null);
+        }
+    }
+
+    private void drawObstacles(Graphics g, GameSnapshot snapshot) {
+        for (int index = 0; index < snapshot.obstacleCount; index++) {
+            // Draw the obstacle
+            int positionX = interpolate(snapshot.obstaclePositionX[index], -snapshot.obstacleSpeed[index]);
+            g.drawImage(obstacleImage, positionX, snapshot.obstaclePositionY[index], null);
+        }
+    }
+
+    private void drawBackground(Graphics g, GameSnapshot snapshot) {
+        backgroundLayers.drawGround(g, interpolate(snapshot.backgroundPosition, -snapshot.backgroundSpeed));
+    }
+
+    private static Image[] createCloudImages(SpriteCache spriteCache) {
+        Image[] images = new Image[(int) (MAX_CLOUD_SCALE * CLOUD_SCALE_STEPS) + 1];
+        Color cloudColor = new Color(255, 255, 255, 200);
+        for (int step = 0; step < images.length; step++) {
+            double scale = (double) step / CLOUD_SCALE_STEPS;
+            int width = Math.max(1, (int) Math.ceil(CLOUD_WIDTH * scale));
+            int height = Math.max(1, (int) Math.ceil(CLOUD_HEIGHT * scale));
+
+            // Draw the same scaled oval the clouds used to be filled with
+            BufferedImage image = spriteCache.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+            Graphics2D g2d = image.createGraphics();
+            g2d.scale(scale, scale);
+            g2d.setColor(cloudColor);
+            g2d.fillOval(0, 0, CLOUD_WIDTH, CLOUD_HEIGHT);
+            g2d.dispose();
+            images[step] = image;
+        }
+        return images;
+    }
+
+    private void drawGhosts(Graphics g, GameSnapshot snapshot) {
+        if (snapshot.ghostCount == 0) return;
+
+        // Ghosts share the character's column, drawn see-through behind it
+        Graphics2D g2d = (Graphics2D) g;
+        Composite composite = g2d.getComposite();
+        g2d.setComposite(GHOST_COMPOSITE);
+        for (int index = 0; index < snapshot.ghostCount; index++) {
+            Image image = snapshot.ghostJumping[index]
+                    ? jumpSprites.frame(snapshot.ghostFrame[index] % jumpSprites.length())
+                    : runSprites.frame(snapshot.ghostFrame[index] % runSprites.length());
+            g2d.drawImage(image, CHARACTER_X, snapshot.ghostPositionY[index], null);
+        }
+        g2d.setComposite(composite);
+    }
+
+    // Rebuilds the character animations in the background if the sprite cache dropped them, before they are drawn
+    public void prefetch() {
+        runSprites.prefetch();
+        jumpSprites.prefetch();
+        deathSprites.prefetch();
+    }
+
+    private void drawCharacter(Graphics g, GameSnapshot snapshot) {
+        // Determine the correct sprite to draw
+        Image currentImage;
+        int currentFrame = snapshot.currentFrame;
+
+        // Check if the death sprite should be drawn
+        if (snapshot.showDeath) {
+            // Use death sprite if the game is over and either in infinite mode or the player hasn't won
+            currentImage = deathSprites.frame(Math.min(currentFrame, deathSprites.length() - 1));
+            if (currentImage == null) currentImage = lastCharacterImage; // Still being rebuilt
+            g.drawImage(currentImage, CHARACTER_X, snapshot.characterPositionAxisY, null);  // Draw death sprite
+        } else {
+            // Use running or jumping sprites otherwise
+            currentImage = snapshot.isJumping
+                    ? jumpSprites.frame(currentFrame % jumpSprites.length())
+                    : runSprites.frame(currentFrame % runSprites.length());
+            if (currentImage == null) currentImage = lastCharacterImage; // Still being rebuilt
+
+            // Interpolate the jump but never draw the character below the ground
+            int positionAxisY = Math.min(FEET, interpolate(snapshot.characterPositionAxisY, snapshot.jumpVelocity));
+            g.drawImage(currentImage, CHARACTER_X, positionAxisY, null);  // Draw normal sprite
+        }
+        lastCharacterImage = currentImage;
+    }
+
+}
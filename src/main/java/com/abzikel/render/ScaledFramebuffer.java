@@ -0,0 +1,81 @@
+package com.abzikel.render;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+// Fixed-size offscreen frame the scene is drawn into, presented to any window size with a single scaled blit
+public class ScaledFramebuffer {
+    private final int width, height;
+    private final int sceneWidth, sceneHeight;
+    private VolatileImage image;
+
+    public ScaledFramebuffer(int width, int height, int sceneWidth, int sceneHeight) {
+        this.width = width;
+        this.height = height;
+        this.sceneWidth = sceneWidth;
+        this.sceneHeight = sceneHeight;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Draws the scene at the internal resolution, then scales it into the target keeping its aspect ratio
+    public void present(Graphics g, GraphicsConfiguration gc, int targetWidth, int targetHeight,
+                        Consumer<Graphics> scene) {
+        do {
+            if (image == null || image.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (image != null) image.flush();
+                image = gc.createCompatibleVolatileImage(width, height, Transparency.OPAQUE);
+            }
+
+            Graphics2D frame = image.createGraphics();
+            try {
+                // Scene coordinates stay the same whatever the internal resolution is
+                if (width != sceneWidth || height != sceneHeight) {
+                    frame.scale((double) width / sceneWidth, (double) height / sceneHeight);
+                }
+                scene.accept(frame);
+            } finally {
+                frame.dispose();
+            }
+
+            blit(g, targetWidth, targetHeight);
+        } while (image.contentsLost());
+    }
+
+    private void blit(Graphics g, int targetWidth, int targetHeight) {
+        // Largest area with the frame's aspect ratio, the rest is filled with black bars
+        int drawWidth = targetWidth;
+        int drawHeight = (int) ((long) targetWidth * height / width);
+        if (drawHeight > targetHeight) {
+            drawHeight = targetHeight;
+            drawWidth = (int) ((long) targetHeight * width / height);
+        }
+        int drawAxisX = (targetWidth - drawWidth) / 2;
+        int drawAxisY = (targetHeight - drawHeight) / 2;
+
+        g.setColor(Color.BLACK);
+        if (drawAxisX > 0) {
+            g.fillRect(0, 0, drawAxisX, targetHeight);
+            g.fillRect(drawAxisX + drawWidth, 0, targetWidth - drawAxisX - drawWidth, targetHeight);
+        }
+        if (drawAxisY > 0) {
+            g.fillRect(0, 0, targetWidth, drawAxisY);
+            g.fillRect(0, drawAxisY + drawHeight, targetWidth, targetHeight - drawAxisY - drawHeight);
+        }
+
+        // Bilinear filtering only matters when the frame is actually resized
+        if (g instanceof Graphics2D && (drawWidth != width || drawHeight != height)) {
+            ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        g.drawImage(image, drawAxisX, drawAxisY, drawWidth, drawHeight, null);
+    }
+
+}
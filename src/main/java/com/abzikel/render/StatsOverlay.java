@@ -0,0 +1,69 @@
+package com.abzikel.render;
+
+import com.abzikel.stats.FrameStats;
+import com.abzikel.stats.LatencyHistogram;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+public class StatsOverlay {
+    private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+    private final FrameStats frameStats;
+    private final String[] lines;
+    private volatile boolean visible;
+    private long lastRefresh;
+
+    public StatsOverlay(FrameStats frameStats) {
+        this.frameStats = frameStats;
+        this.lines = new String[frameStats.histograms().length + 1];
+        lines[0] = "            p50    p99  p99.9    max (ms)";
+    }
+
+    public void toggle() {
+        visible = !visible;
+        lastRefresh = 0;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void draw(Graphics g, int positionX, int positionY) {
+        if (!visible) return;
+
+        // Formatting text is the expensive part, so the numbers only refresh twice per second
+        long now = System.nanoTime();
+        if (lastRefresh == 0 || now - lastRefresh >= REFRESH_NANOS) {
+            refresh();
+            lastRefresh = now;
+        }
+
+        // Draw the lines over a translucent box
+        g.setFont(FONT);
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        g.setColor(BACKGROUND);
+        g.fillRect(positionX, positionY, metrics.stringWidth(lines[0]) + 12, lineHeight * lines.length + 8);
+        g.setColor(Color.WHITE);
+        for (int index = 0; index < lines.length; index++) {
+            g.drawString(lines[index], positionX + 6, positionY + 4 + metrics.getAscent() + index * lineHeight);
+        }
+    }
+
+    private void refresh() {
+        LatencyHistogram[] histograms = frameStats.histograms();
+        for (int index = 0; index < histograms.length; index++) {
+            LatencyHistogram histogram = histograms[index];
+            lines[index + 1] = String.format("%-10s %6.2f %6.2f %6.2f %6.2f", histogram.getName(),
+                    toMillis(histogram.getPercentile(50)), toMillis(histogram.getPercentile(99)),
+                    toMillis(histogram.getPercentile(99.9)), toMillis(histogram.getMax()));
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
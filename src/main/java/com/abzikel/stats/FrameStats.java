@@ -0,0 +1,45 @@
+package com.abzikel.stats;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FrameStats {
+    // Time spent advancing the engine, drawing a frame, presenting it, between two frames,
+    // and from a jump key press to the first frame drawn with the jump
+    public final LatencyHistogram simulation = new LatencyHistogram("simulation");
+    public final LatencyHistogram render = new LatencyHistogram("render");
+    public final LatencyHistogram present = new LatencyHistogram("present");
+    public final LatencyHistogram frame = new LatencyHistogram("frame");
+    public final LatencyHistogram input = new LatencyHistogram("input");
+    private long lastFrameTime;
+
+    // Marks the start of a frame and records the interval since the previous one
+    public void frameStarted(long now) {
+        if (lastFrameTime != 0) frame.record(now - lastFrameTime);
+        lastFrameTime = now;
+    }
+
+    public LatencyHistogram[] histograms() {
+        return new LatencyHistogram[]{simulation, render, present, frame, input};
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms()) histogram.reset();
+        lastFrameTime = 0;
+    }
+
+    public void writeTo(Path file) throws IOException {
+        Path parent = file.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            for (LatencyHistogram histogram : histograms()) {
+                histogram.writeTo(writer);
+                writer.println();
+            }
+        }
+    }
+
+}
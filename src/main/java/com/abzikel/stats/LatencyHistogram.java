@@ -0,0 +1,97 @@
+package com.abzikel.stats;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+public class LatencyHistogram {
+    // Each power of two is split into 16 buckets, so any recorded value is off by at most 1/16
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private final String name;
+    private long count, total, max;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    // Recording is not synchronized, each histogram is written by a single thread
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucketOf(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    // Smallest recorded value the given percentage of samples are below or equal to
+    public long getPercentile(double percentile) {
+        long samples = count;
+        if (samples == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * samples));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= target) return Math.min(max, highestValueIn(bucket));
+        }
+        return max;
+    }
+
+    // Adds every sample of another histogram to this one
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    // Summary line followed by the non-empty buckets, as "<upper bound in ns> <count>"
+    public void writeTo(PrintWriter writer) {
+        writer.printf("%s count=%d mean=%d p50=%d p99=%d p99.9=%d max=%d%n", name, count, getMean(),
+                getPercentile(50), getPercentile(99), getPercentile(99.9), max);
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] != 0) writer.printf("%d %d%n", highestValueIn(bucket), counts[bucket]);
+        }
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}
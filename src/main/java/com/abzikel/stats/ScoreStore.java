@@ -0,0 +1,282 @@
+package com.abzikel.stats;
+
+import com.abzikel.pojos.RunResult;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Every finished run as a fixed-size record appended to a memory-mapped file, with the best runs of each mode in memory
+// Several processes can share the file, appends hold a lock on the header and pick up the other processes' runs first
+public class ScoreStore implements Closeable {
+    // Index key of the best runs across every mode
+    public static final int ALL_MODES = -1;
+    // Best runs kept in memory per mode, longer rankings are read from the file
+    public static final int INDEX_SIZE = 100;
+    private static final int MAGIC = 0x43525343; // "CRSC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;  // Magic, version and record count
+    private static final int RECORD_BYTES = 40;
+    // The file grows by this many records at a time, each segment is mapped once
+    private static final int SEGMENT_RECORDS = 1 << 16;
+    // Higher score first, then the shorter run, then the earlier one
+    private static final Comparator<RunResult> RANKING = Comparator
+            .comparingInt((RunResult run) -> -run.obstaclesDodged)
+            .thenComparingLong(run -> run.ticks)
+            .thenComparingLong(run -> run.time);
+    private static final Logger logger = Logger.getLogger(ScoreStore.class.getName());
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<Integer, PriorityQueue<RunResult>> bestRuns = new HashMap<>();
+    private final Map<Integer, Integer> runCounts = new HashMap<>();
+    private final ExecutorService writer;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private long count; // Guarded by this, records below it are complete and indexed
+
+    public ScoreStore(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) throw new IOException("Cannot create " + parent);
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        // Another process may be creating the same file, the header is written under the lock
+        try (FileLock ignored = channel.lock(0, HEADER_BYTES, false)) {
+            // A new file starts with an empty header, an existing one must be a score file of this version
+            boolean created = channel.size() == 0;
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(8, 0);
+            } else if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a score file: " + file);
+            } else if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported score file version " + header.getInt(4));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        // Writes and the initial index scan run on one background thread, in order
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CuteRunner-ScoreWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(this::load);
+    }
+
+    // Queues the run to be written, returns at once
+    public void add(RunResult run) {
+        writer.execute(() -> {
+            try {
+                append(run);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error writing run to " + file, e);
+            }
+        });
+    }
+
+    // Best runs of a mode (an obstacle count, 0 for infinite mode, or ALL_MODES), best first
+    public List<RunResult> getTopRuns(int obstacleCount, int limit) {
+        refresh();
+        if (limit > INDEX_SIZE) return scanTopRuns(obstacleCount, limit);
+
+        List<RunResult> runs;
+        synchronized (this) {
+            PriorityQueue<RunResult> best = bestRuns.get(obstacleCount);
+            if (best == null) return Collections.emptyList();
+            runs = new ArrayList<>(best);
+        }
+        runs.sort(RANKING);
+        return runs.size() > limit ? new ArrayList<>(runs.subList(0, limit)) : runs;
+    }
+
+    // Latest runs of every mode, newest first
+    public List<RunResult> getRecentRuns(int limit) {
+        refresh();
+        List<RunResult> runs = new ArrayList<>(limit);
+        synchronized (this) {
+            for (long index = count - 1; index >= 0 && runs.size() < limit; index--) runs.add(read(index));
+        }
+        return runs;
+    }
+
+    public int getRunCount(int obstacleCount) {
+        refresh();
+        synchronized (this) {
+            return runCounts.getOrDefault(obstacleCount, 0);
+        }
+    }
+
+    public long size() {
+        refresh();
+        synchronized (this) {
+            return count;
+        }
+    }
+
+    // Writes every queued run and flushes the file
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) logger.warning("Score writer did not finish");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            header.force();
+            for (MappedByteBuffer segment : segments) segment.force();
+            channel.close();
+        }
+    }
+
+    private void load() {
+        try {
+            synchronized (this) {
+                try (FileLock ignored = channel.lock(0, HEADER_BYTES, true)) {
+                    catchUp();
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error reading runs from " + file, e);
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    // Picks up what other processes appended since the last look, blocks until the initial scan is done
+    private void refresh() {
+        awaitLoaded();
+        synchronized (this) {
+            try (FileLock ignored = channel.lock(0, HEADER_BYTES, true)) {
+                catchUp();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error reading runs from " + file, e);
+            }
+        }
+    }
+
+    // Indexes every record the header counts that is not indexed yet, called with the file lock held
+    private synchronized void catchUp() throws IOException {
+        // A run cut short by a crash is ignored, the header only counts complete records
+        long stored = header.getLong(8);
+        long available = Math.max(0, (channel.size() - HEADER_BYTES) / RECORD_BYTES);
+        long end = Math.min(stored, available);
+        for (; count < end; count++) indexRun(read(count));
+    }
+
+    private synchronized void append(RunResult run) throws IOException {
+        // Another process may have appended since, the new record goes after its runs
+        try (FileLock ignored = channel.lock(0, HEADER_BYTES, false)) {
+            catchUp();
+            write(run);
+        }
+    }
+
+    private void write(RunResult run) throws IOException {
+        MappedByteBuffer segment = segment(count);
+        int offset = (int) (count % SEGMENT_RECORDS) * RECORD_BYTES;
+        segment.putLong(offset, run.time);
+        segment.putLong(offset + 8, run.seed);
+        segment.putLong(offset + 16, run.ticks);
+        segment.putInt(offset + 24, run.obstaclesDodged);
+        segment.putInt(offset + 28, run.obstacleCount);
+        segment.putInt(offset + 32, run.won ? 1 : 0);
+        segment.putInt(offset + 36, 0);
+
+        // The record only counts once it is complete
+        count++;
+        header.putLong(8, count);
+        indexRun(run);
+    }
+
+    private RunResult read(long index) {
+        MappedByteBuffer segment;
+        try {
+            segment = segment(index);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map run " + index + " of " + file, e);
+        }
+        int offset = (int) (index % SEGMENT_RECORDS) * RECORD_BYTES;
+        return new RunResult(segment.getLong(offset), segment.getLong(offset + 8), segment.getLong(offset + 16),
+                segment.getInt(offset + 24), segment.getInt(offset + 28), segment.getInt(offset + 32) != 0);
+    }
+
+    // Maps segments as they are first needed, mapping past the end of the file grows it
+    private synchronized MappedByteBuffer segment(long index) throws IOException {
+        int segmentIndex = (int) (index / SEGMENT_RECORDS);
+        while (segments.size() <= segmentIndex) {
+            long position = HEADER_BYTES + (long) segments.size() * SEGMENT_RECORDS * RECORD_BYTES;
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) SEGMENT_RECORDS * RECORD_BYTES));
+        }
+        return segments.get(segmentIndex);
+    }
+
+    private void indexRun(RunResult run) {
+        runCounts.merge(run.obstacleCount, 1, Integer::sum);
+        runCounts.merge(ALL_MODES, 1, Integer::sum);
+        offerBest(run.obstacleCount, run, INDEX_SIZE);
+        offerBest(ALL_MODES, run, INDEX_SIZE);
+    }
+
+    private void offerBest(int mode, RunResult run, int limit) {
+        offer(bestRuns.computeIfAbsent(mode, key -> new PriorityQueue<>(limit + 1, RANKING.reversed())), run, limit);
+    }
+
+    // The heap's head is the worst run kept, it makes room for better ones
+    private static void offer(PriorityQueue<RunResult> best, RunResult run, int limit) {
+        if (best.size() < limit) {
+            best.add(run);
+        } else if (RANKING.compare(run, best.peek()) < 0) {
+            best.poll();
+            best.add(run);
+        }
+    }
+
+    // Rankings longer than the index read every record
+    private List<RunResult> scanTopRuns(int obstacleCount, int limit) {
+        PriorityQueue<RunResult> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        synchronized (this) {
+            for (long index = 0; index < count; index++) {
+                RunResult run = read(index);
+                if (obstacleCount == ALL_MODES || run.obstacleCount == obstacleCount) offer(best, run, limit);
+            }
+        }
+        List<RunResult> runs = new ArrayList<>(best);
+        runs.sort(RANKING);
+        return runs;
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
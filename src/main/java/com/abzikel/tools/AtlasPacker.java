@@ -0,0 +1,142 @@
+package com.abzikel.tools;
+
+import com.abzikel.utils.ImageUtil;
+import com.abzikel.utils.SpriteAtlas;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Build step that packs every "<Animation> (<frame>).png" sprite into a single pre-decoded atlas
+public class AtlasPacker {
+    private static final Pattern SPRITE_NAME = Pattern.compile("(.+) \\((\\d+)\\)\\.png");
+    private static final int MAX_PAGE_WIDTH = 4096;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: AtlasPacker <sprites directory> <atlas file>");
+            System.exit(2);
+        }
+        ImageIO.setUseCache(false);
+
+        // Frames are stored by animation and frame number
+        File[] files = new File(args[0]).listFiles((directory, name) -> SPRITE_NAME.matcher(name).matches());
+        if (files == null || files.length == 0) throw new IOException("No sprites found in " + args[0]);
+        Arrays.sort(files, Comparator.comparing(AtlasPacker::animationOf).thenComparingInt(AtlasPacker::indexOf));
+
+        List<BufferedImage> images = new ArrayList<>(files.length);
+        List<int[]> bounds = new ArrayList<>(files.length);
+        for (File file : files) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) throw new IOException("Unsupported image format: " + file);
+            image = ImageUtil.toPremultiplied(image);
+            images.add(image);
+            bounds.add(opaqueBounds(image));
+        }
+
+        // Shelf packing: the tallest frames go first, on the page width that leaves the least empty space
+        Integer[] placementOrder = new Integer[files.length];
+        for (int index = 0; index < files.length; index++) placementOrder[index] = index;
+        Arrays.sort(placementOrder, Comparator.comparingInt((Integer index) -> -bounds.get(index)[3]));
+        int widestFrame = bounds.stream().mapToInt(trim -> trim[2]).max().getAsInt();
+        int pageWidth = MAX_PAGE_WIDTH;
+        long pageArea = Long.MAX_VALUE;
+        for (int width = widestFrame; width <= MAX_PAGE_WIDTH; width++) {
+            long area = (long) width * shelve(bounds, placementOrder, width, null);
+            if (area < pageArea) {
+                pageArea = area;
+                pageWidth = width;
+            }
+        }
+        int[][] positions = new int[files.length][];
+        int pageHeight = shelve(bounds, placementOrder, pageWidth, positions);
+
+        List<SpriteAtlas.Frame> frames = new ArrayList<>(files.length);
+        for (int index = 0; index < files.length; index++) {
+            String animation = animationOf(files[index]);
+            int frame = indexOf(files[index]);
+            int[] trim = bounds.get(index);
+            BufferedImage image = images.get(index);
+            frames.add(new SpriteAtlas.Frame(ImageUtil.spritePath(animation, frame), animation, frame,
+                    positions[index][0], positions[index][1], trim[2], trim[3],
+                    image.getWidth(), image.getHeight(), trim[0], trim[1]));
+        }
+        int[] page = new int[pageWidth * pageHeight];
+        for (int index = 0; index < frames.size(); index++) {
+            SpriteAtlas.Frame frame = frames.get(index);
+            int[] trim = bounds.get(index);
+            int[] pixels = (int[]) images.get(index).getRaster()
+                    .getDataElements(trim[0], trim[1], frame.width, frame.height, null);
+            for (int line = 0; line < frame.height; line++) {
+                System.arraycopy(pixels, line * frame.width, page, (frame.y + line) * pageWidth + frame.x, frame.width);
+            }
+        }
+
+        File output = new File(args[1]);
+        if (output.getParentFile() != null && !output.getParentFile().isDirectory() && !output.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + output.getParentFile());
+        }
+        try (OutputStream outputStream = new FileOutputStream(output)) {
+            SpriteAtlas.write(outputStream, frames, page, pageWidth, pageHeight);
+        }
+        System.out.printf("Packed %d frames into a %dx%d page (%d KB)%n", frames.size(), pageWidth, pageHeight,
+                output.length() / 1024);
+    }
+
+    // Places the frames left to right and starts a new row at the page width, returns the page height
+    private static int shelve(List<int[]> bounds, Integer[] placementOrder, int pageWidth, int[][] positions) {
+        int shelfAxisX = 0, shelfAxisY = 0, shelfHeight = 0;
+        for (int index : placementOrder) {
+            int[] trim = bounds.get(index);
+            if (shelfAxisX + trim[2] > pageWidth) {
+                shelfAxisX = 0;
+                shelfAxisY += shelfHeight;
+                shelfHeight = 0;
+            }
+            if (positions != null) positions[index] = new int[]{shelfAxisX, shelfAxisY};
+            shelfAxisX += trim[2];
+            shelfHeight = Math.max(shelfHeight, trim[3]);
+        }
+        return shelfAxisY + shelfHeight;
+    }
+
+    // Smallest rectangle holding every non-transparent pixel, as {x, y, width, height}
+    private static int[] opaqueBounds(BufferedImage image) {
+        int width = image.getWidth(), height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (pixels[y * width + x] >>> 24 == 0) continue;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        if (maxX < 0) return new int[]{0, 0, 1, 1}; // Fully transparent frames keep a single pixel
+        return new int[]{minX, minY, maxX - minX + 1, maxY - minY + 1};
+    }
+
+    private static String animationOf(File file) {
+        Matcher matcher = SPRITE_NAME.matcher(file.getName());
+        if (!matcher.matches()) throw new IllegalArgumentException("Not a sprite: " + file);
+        return matcher.group(1);
+    }
+
+    private static int indexOf(File file) {
+        Matcher matcher = SPRITE_NAME.matcher(file.getName());
+        if (!matcher.matches()) throw new IllegalArgumentException("Not a sprite: " + file);
+        return Integer.parseInt(matcher.group(2));
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.abzikel.tools;
+
+import com.abzikel.engine.CollisionMasks;
+import com.abzikel.engine.GameEngine;
+import com.abzikel.utils.AssetService;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+public class BatchRunner {
+    // Games are split into many more batches than threads so uneven game lengths still balance out
+    private static final int BATCHES_PER_THREAD = 8;
+    private final CollisionMasks collisionMasks;
+    private final int obstacleCount;
+    private final long maxTicks;
+
+    public BatchRunner(CollisionMasks collisionMasks, int obstacleCount, long maxTicks) {
+        this.collisionMasks = collisionMasks;
+        this.obstacleCount = obstacleCount;
+        this.maxTicks = maxTicks;
+    }
+
+    // Plays games seeded firstSeed, firstSeed + 1, ... and merges the per-batch results once every batch is done
+    public BatchStats run(int games, long firstSeed, Supplier<JumpPolicy> policies, ExecutorService executor,
+                          int parallelism) throws InterruptedException {
+        int batchCount = Math.max(1, Math.min(games, parallelism * BATCHES_PER_THREAD));
+        List<Callable<BatchStats>> batches = new ArrayList<>(batchCount);
+        for (int batch = 0; batch < batchCount; batch++) {
+            int from = (int) ((long) games * batch / batchCount);
+            int to = (int) ((long) games * (batch + 1) / batchCount);
+            batches.add(() -> runBatch(firstSeed + from, to - from, policies));
+        }
+
+        BatchStats total = new BatchStats();
+        try {
+            for (Future<BatchStats> result : executor.invokeAll(batches)) total.merge(result.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch failed", e.getCause());
+        }
+        return total;
+    }
+
+    // Each batch owns its engines, policies and stats, nothing is shared until the merge
+    private BatchStats runBatch(long firstSeed, int games, Supplier<JumpPolicy> policies) {
+        BatchStats stats = new BatchStats();
+        for (int game = 0; game < games; game++) {
+            GameEngine engine = new GameEngine(obstacleCount, collisionMasks, firstSeed + game);
+            JumpPolicy policy = policies.get();
+            while (!engine.isFinished() && engine.getTicks() < maxTicks) {
+                engine.step(policy.decide(engine));
+            }
+            stats.record(engine);
+        }
+        return stats;
+    }
+
+    // At most the given number of games run at once, on virtual threads when the runtime has them
+    static ExecutorService createExecutor(int threads) {
+        ThreadFactory virtualThreads = getVirtualThreadFactory();
+        return virtualThreads != null ? Executors.newFixedThreadPool(threads, virtualThreads) : new ForkJoinPool(threads);
+    }
+
+    // Thread.ofVirtual().factory() on runtimes that have it, null on older ones
+    static ThreadFactory getVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 4) {
+            System.err.println("Usage: BatchRunner [games] [obstacles] [policy] [threads]");
+            System.exit(2);
+        }
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int obstacles = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String policyName = args.length > 2 ? args[2] : "distance:90";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        if (games < 1 || threads < 1) {
+            System.err.println("Games and threads must be at least 1");
+            System.exit(2);
+        }
+
+        // Batches run headless, only the collision masks are needed
+        System.setProperty("java.awt.headless", "true");
+        CollisionMasks collisionMasks = AssetService.getInstance().getCollisionMasks();
+        JumpPolicy.parse(policyName); // Fail before starting any thread on a bad policy name
+
+        // Endless games are capped at ten minutes of play
+        BatchRunner runner = new BatchRunner(collisionMasks, obstacles, 30_000);
+        ExecutorService executor = createExecutor(threads);
+        try {
+            long start = System.nanoTime();
+            BatchStats stats = runner.run(games, 0, () -> JumpPolicy.parse(policyName), executor, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d games, %d obstacles, %s, %d %s threads%n", games, obstacles, policyName,
+                    threads, getVirtualThreadFactory() != null ? "virtual" : "platform");
+            System.out.printf("won %.1f%%, %.2f obstacles dodged per game%n",
+                    100.0 * stats.getWins() / stats.getGames(), (double) stats.getObstaclesDodged() / stats.getGames());
+            System.out.printf("survival ticks p50=%d p90=%d max=%d%n", stats.getSurvivalTicks().getPercentile(50),
+                    stats.getSurvivalTicks().getPercentile(90), stats.getSurvivalTicks().getMax());
+            System.out.printf("%.0f games/s, %.0f ticks/s%n", games / seconds, stats.getTotalTicks() / seconds);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.abzikel.tools;
+
+import com.abzikel.engine.GameEngine;
+import com.abzikel.stats.LatencyHistogram;
+
+// Results of a group of automated games, owned by one worker until it is merged into another
+public class BatchStats {
+    private final LatencyHistogram survivalTicks = new LatencyHistogram("survival ticks");
+    private long games, wins, obstaclesDodged, totalTicks;
+
+    public void record(GameEngine engine) {
+        games++;
+        if (engine.hasWon()) wins++;
+        obstaclesDodged += engine.getObstaclesDodged();
+        totalTicks += engine.getTicks();
+        survivalTicks.record(engine.getTicks());
+    }
+
+    // Adds the results of another worker, called once per worker after it is done
+    public BatchStats merge(BatchStats other) {
+        games += other.games;
+        wins += other.wins;
+        obstaclesDodged += other.obstaclesDodged;
+        totalTicks += other.totalTicks;
+        survivalTicks.add(other.survivalTicks);
+        return this;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getObstaclesDodged() {
+        return obstaclesDodged;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    public LatencyHistogram getSurvivalTicks() {
+        return survivalTicks;
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.abzikel.tools;
+
+import com.abzikel.capture.FrameCapture;
+import com.abzikel.capture.FrameEncoder;
+import com.abzikel.engine.CollisionMasks;
+import com.abzikel.engine.GameEngine;
+import com.abzikel.engine.Input;
+import com.abzikel.engine.InputLog;
+import com.abzikel.pojos.GameSnapshot;
+import com.abzikel.render.GameRenderer;
+import com.abzikel.utils.AssetService;
+import com.abzikel.utils.SpriteCache;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class CaptureTool {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    // Endless bot games are capped at two minutes of play
+    private static final long MAX_TICKS = 6_000;
+    private static final int BUFFERS = 16;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 5) {
+            System.err.println("Usage: CaptureTool <output.gif | output folder> <replay file | policy> [obstacles] [seed] [block|drop]");
+            System.exit(2);
+        }
+        File output = new File(args[0]);
+        String source = args[1];
+        int obstacles = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        FrameCapture.Policy policy = args.length > 4 ? FrameCapture.Policy.valueOf(args[4].toUpperCase()) : FrameCapture.Policy.BLOCK;
+
+        // Frames are drawn into plain images, no display is needed
+        System.setProperty("java.awt.headless", "true");
+        CollisionMasks collisionMasks = AssetService.getInstance().getCollisionMasks();
+        GameRenderer renderer = new GameRenderer(new SpriteCache(null), TICK_NANOS);
+
+        // A replay file is played back exactly, anything else is a jump policy
+        InputLog.Cursor replay = null;
+        JumpPolicy jumpPolicy = null;
+        if (new File(source).isFile()) {
+            InputLog log = InputLog.load(new File(source));
+            replay = log.cursor();
+            obstacles = log.getObstacleCount();
+            seed = log.getSeed();
+        } else {
+            jumpPolicy = JumpPolicy.parse(source);
+        }
+        GameEngine engine = new GameEngine(obstacles, collisionMasks, seed);
+        GameSnapshot snapshot = engine.createSnapshot();
+
+        String format = output.getName().toLowerCase().endsWith(".gif") ? "gif" : "png";
+        FrameEncoder encoder = FrameEncoder.create(format, output, GameEngine.WIDTH, GameEngine.HEIGHT,
+                (int) TimeUnit.NANOSECONDS.toMillis(TICK_NANOS));
+        int threads = Runtime.getRuntime().availableProcessors();
+        FrameCapture capture = new FrameCapture(encoder, GameEngine.WIDTH, GameEngine.HEIGHT, BUFFERS, threads, policy);
+
+        // One frame per tick, drawn at the exact tick state like the game window's capture
+        long start = System.nanoTime();
+        long renderNanos = 0;
+        while (!engine.isFinished() && engine.getTicks() < MAX_TICKS
+                && (replay == null || !replay.isFinished(engine.getTicks()))) {
+            Input input = replay != null ? replay.inputAt(engine.getTicks()) : jumpPolicy.decide(engine);
+            engine.step(input);
+            engine.writeSnapshot(snapshot);
+
+            FrameCapture.Frame frame = capture.acquire();
+            if (frame == null) continue;
+            long renderStart = System.nanoTime();
+            Graphics2D g2d = frame.image.createGraphics();
+            renderer.render(g2d, snapshot, 0f);
+            g2d.dispose();
+            renderNanos += System.nanoTime() - renderStart;
+            capture.submit(frame);
+        }
+        long producerNanos = System.nanoTime() - start;
+        capture.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s: %d ticks, %d frames encoded, %d dropped, %s, %d encoder threads%n", output,
+                engine.getTicks(), capture.getEncoded(), capture.getDropped(), engine.hasWon() ? "won" : "lost", threads);
+        System.out.printf("render %.2f ms/frame, blocked %.0f ms of %.0f ms, total %.1f s (%.0f frames/s)%n",
+                renderNanos / 1e6 / Math.max(1, engine.getTicks()), capture.getBlockedNanos() / 1e6,
+                producerNanos / 1e6, seconds, capture.getEncoded() / seconds);
+    }
+
+}
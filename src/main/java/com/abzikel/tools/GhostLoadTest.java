@@ -0,0 +1,127 @@
+package com.abzikel.tools;
+
+import com.abzikel.engine.CollisionMasks;
+import com.abzikel.engine.GameEngine;
+import com.abzikel.net.GhostClient;
+import com.abzikel.net.GhostHost;
+import com.abzikel.pojos.GhostState;
+import com.abzikel.stats.LatencyHistogram;
+import com.abzikel.utils.AssetService;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class GhostLoadTest {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    // Send times kept per client, enough ticks to cover any latency worth measuring
+    private static final int SEND_HISTORY = 256;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 2) {
+            System.err.println("Usage: GhostLoadTest [clients] [seconds]");
+            System.exit(2);
+        }
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        // Bots play real games headless, only the collision masks are needed
+        System.setProperty("java.awt.headless", "true");
+        CollisionMasks collisionMasks = AssetService.getInstance().getCollisionMasks();
+        JumpPolicy policy = JumpPolicy.atDistance(130);
+
+        GhostHost host = new GhostHost(0);
+        host.start();
+        InetSocketAddress address = new InetSocketAddress("localhost", host.getPort());
+
+        // Clients join one at a time so the host numbers them in order, client i races as ghost i + 1
+        GameEngine[] engines = new GameEngine[clientCount];
+        GhostClient[] clients = new GhostClient[clientCount];
+        GhostState state = new GhostState();
+        for (int index = 0; index < clientCount; index++) {
+            engines[index] = new GameEngine(0, collisionMasks, index);
+            clients[index] = new GhostClient(address);
+            state.tick = -1;
+            while (clients[index].getPacketsReceived() == 0) {
+                clients[index].send(state);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                clients[index].poll();
+            }
+        }
+
+        // Every client ticks in lockstep, between ticks they all keep reading what the host relays
+        long[][] sentAt = new long[clientCount][SEND_HISTORY];
+        long[][] latestTick = new long[clientCount][clientCount + 1];
+        LatencyHistogram latency = new LatencyHistogram("relay");
+        long snapshots = 0;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long hostCpuStart = threads.getThreadCpuTime(host.getThreadId());
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long nextTick = start;
+        long tick = 0;
+        while (System.nanoTime() < end) {
+            if (System.nanoTime() - nextTick >= 0) {
+                for (int index = 0; index < clientCount; index++) {
+                    GameEngine engine = engines[index];
+                    if (engine.isFinished()) engine.reset(0, tick + index);
+                    engine.step(policy.decide(engine));
+
+                    state.tick = tick;
+                    state.characterPositionAxisY = engine.getCharacterPositionAxisY();
+                    state.currentFrame = engine.getCurrentFrame();
+                    state.obstaclesDodged = engine.getObstaclesDodged();
+                    state.isJumping = engine.isJumping();
+                    state.isGameOver = engine.isGameOver();
+                    sentAt[index][(int) (tick % SEND_HISTORY)] = System.nanoTime();
+                    clients[index].send(state);
+                }
+                tick++;
+                nextTick += TICK_NANOS;
+            }
+
+            // A ghost's tick is measured from when its own client sent it
+            for (int index = 0; index < clientCount; index++) {
+                if (!clients[index].poll()) continue;
+                long now = System.nanoTime();
+                for (int ghost = 0; ghost < clients[index].getGhostCount(); ghost++) {
+                    GhostState received = clients[index].getGhost(ghost);
+                    int sender = received.playerId - 1;
+                    if (sender < 0 || sender >= clientCount || received.tick <= latestTick[index][sender]) continue;
+                    latestTick[index][sender] = received.tick;
+                    if (tick - received.tick < SEND_HISTORY) {
+                        latency.record(now - sentAt[sender][(int) (received.tick % SEND_HISTORY)]);
+                    }
+                    snapshots++;
+                }
+            }
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long hostCpu = threads.getThreadCpuTime(host.getThreadId()) - hostCpuStart;
+        host.close();
+
+        long packetsSent = 0, bytesSent = 0, packetsReceived = 0, bytesReceived = 0;
+        for (GhostClient client : clients) {
+            packetsSent += client.getPacketsSent();
+            bytesSent += client.getBytesSent();
+            packetsReceived += client.getPacketsReceived();
+            bytesReceived += client.getBytesReceived();
+            client.close();
+        }
+
+        System.out.printf("%d clients, %d ticks in %.1f s%n", clientCount, tick, elapsed);
+        System.out.printf("%.0f ghost snapshots/s delivered, %.1f bytes per client packet, %.1f bytes per host packet%n",
+                snapshots / elapsed, (double) bytesSent / Math.max(1, packetsSent),
+                (double) bytesReceived / Math.max(1, packetsReceived));
+        System.out.printf("%.2f bytes per relayed runner, host %.1f us of CPU per tick%n",
+                (double) bytesReceived / Math.max(1, snapshots), hostCpu / 1e3 / Math.max(1, tick));
+        System.out.printf("relay latency p50=%.2f ms p99=%.2f ms max=%.2f ms%n", latency.getPercentile(50) / 1e6,
+                latency.getPercentile(99) / 1e6, latency.getMax() / 1e6);
+    }
+
+}
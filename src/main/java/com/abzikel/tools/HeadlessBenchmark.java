@@ -0,0 +1,254 @@
+package com.abzikel.tools;
+
+import com.abzikel.engine.CollisionMasks;
+import com.abzikel.engine.GameEngine;
+import com.abzikel.loop.CourseStream;
+import com.abzikel.pojos.GameSnapshot;
+import com.abzikel.render.GameRenderer;
+import com.abzikel.stats.LatencyHistogram;
+import com.abzikel.utils.AssetService;
+import com.abzikel.utils.SpriteCache;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Plays bot games without a display and compares the results against a baseline, for use as a build gate
+public class HeadlessBenchmark {
+    public static final int EXIT_PASSED = 0;
+    public static final int EXIT_REGRESSED = 1;
+    public static final int EXIT_USAGE = 2;
+    private static final String USAGE = "Usage: Menu --bench [--ticks N | --games N] [--obstacles N] [--policy NAME]"
+            + " [--render] [--warmup N] [--baseline FILE] [--tolerance PERCENT] [--write-baseline FILE]";
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    // Endless games are capped at ten minutes of play
+    private static final long MAX_GAME_TICKS = 30_000;
+    // Metrics where a higher value is better, every other one regresses when it grows
+    private static final String TICKS_PER_SECOND = "ticksPerSecond";
+    private long ticks = 100_000;
+    private int games;
+    private int obstacles = 20;
+    private String policyName = "distance:130";
+    private boolean render;
+    private long warmupTicks = 5_000;
+    private File baseline;
+    private File writeBaseline;
+    private double tolerance = 10;
+
+    // Parses the arguments that follow --bench, runs and returns the process exit code
+    public static int run(String[] args) {
+        HeadlessBenchmark benchmark = new HeadlessBenchmark();
+        try {
+            benchmark.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        try {
+            return benchmark.run();
+        } catch (IOException e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+    }
+
+    private void parse(String[] args) {
+        for (int index = 0; index < args.length; index++) {
+            String option = args[index];
+            if (option.equals("--render")) {
+                render = true;
+                continue;
+            }
+            if (index + 1 == args.length) throw new IllegalArgumentException("Missing value for " + option);
+            String value = args[++index];
+            switch (option) {
+                case "--ticks":
+                    ticks = Long.parseLong(value);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(value);
+                    break;
+                case "--obstacles":
+                    obstacles = Integer.parseInt(value);
+                    break;
+                case "--policy":
+                    JumpPolicy.parse(value); // Fail now on a bad policy name
+                    policyName = value;
+                    break;
+                case "--warmup":
+                    warmupTicks = Long.parseLong(value);
+                    break;
+                case "--baseline":
+                    baseline = new File(value);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(value);
+                    break;
+                case "--write-baseline":
+                    writeBaseline = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+    }
+
+    private int run() throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        CollisionMasks collisionMasks = AssetService.getInstance().getCollisionMasks();
+
+        // Frames go to an offscreen image in the same format the capture uses
+        GameRenderer renderer = null;
+        Graphics2D graphics = null;
+        if (render) {
+            renderer = new GameRenderer(new SpriteCache(null), TICK_NANOS);
+            BufferedImage frame = new BufferedImage(GameEngine.WIDTH, GameEngine.HEIGHT, BufferedImage.TYPE_INT_RGB);
+            graphics = frame.createGraphics();
+        }
+
+        // Chunks are streamed from a background thread as in the game, so the allocation figures match it
+        CourseStream course = new CourseStream("CuteRunner-BenchCourse", 8);
+        GameEngine engine = new GameEngine(obstacles, collisionMasks, 0, course);
+        GameSnapshot snapshot = engine.createSnapshot();
+        JumpPolicy policy = JumpPolicy.parse(policyName);
+        LatencyHistogram tickTimes = new LatencyHistogram("tick");
+        LatencyHistogram frameTimes = new LatencyHistogram("frame");
+
+        // Let the JIT settle before measuring anything
+        long seed = 1;
+        for (long tick = 0; tick < warmupTicks; tick++) {
+            if (engine.isFinished() || engine.getTicks() >= MAX_GAME_TICKS) engine.reset(obstacles, seed++);
+            engine.step(policy.decide(engine));
+            if (render) {
+                engine.writeSnapshot(snapshot);
+                renderer.render(graphics, snapshot, 0f);
+            }
+        }
+
+        // Measured run, always from the same seeds so runs are comparable
+        seed = 1;
+        engine.reset(obstacles, seed++);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) pool.resetPeakUsage();
+        long allocatedStart = getAllocatedBytes(threads);
+        long gamesPlayed = 0;
+        long measuredTicks = 0;
+        long start = System.nanoTime();
+        while (games > 0 ? gamesPlayed < games : measuredTicks < ticks) {
+            if (engine.isFinished() || engine.getTicks() >= MAX_GAME_TICKS) {
+                gamesPlayed++;
+                engine.reset(obstacles, seed++);
+                continue;
+            }
+
+            long tickStart = System.nanoTime();
+            engine.step(policy.decide(engine));
+            long tickEnd = System.nanoTime();
+            tickTimes.record(tickEnd - tickStart);
+            if (render) {
+                engine.writeSnapshot(snapshot);
+                renderer.render(graphics, snapshot, 0f);
+                frameTimes.record(System.nanoTime() - tickEnd);
+            }
+            measuredTicks++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = getAllocatedBytes(threads) - allocatedStart;
+        course.close();
+
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put(TICKS_PER_SECOND, measuredTicks / seconds);
+        results.put("tickP50Nanos", (double) tickTimes.getPercentile(50));
+        results.put("tickP99Nanos", (double) tickTimes.getPercentile(99));
+        results.put("tickP999Nanos", (double) tickTimes.getPercentile(99.9));
+        if (render) {
+            results.put("frameP50Nanos", (double) frameTimes.getPercentile(50));
+            results.put("frameP99Nanos", (double) frameTimes.getPercentile(99));
+            results.put("frameP999Nanos", (double) frameTimes.getPercentile(99.9));
+        }
+        // Allocation is compared per tick, a rate would also move with the tick speed
+        if (allocated >= 0) results.put("allocatedBytesPerTick", (double) allocated / Math.max(1, measuredTicks));
+        results.put("peakHeapBytes", (double) getPeakHeapBytes());
+
+        System.out.printf("%d ticks, %d games, %d obstacles, %s%s in %.2f s%n", measuredTicks, gamesPlayed, obstacles,
+                policyName, render ? ", rendered" : "", seconds);
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            System.out.printf("%-24s %,.2f%n", result.getKey(), result.getValue());
+        }
+        if (allocated >= 0) System.out.printf("%-24s %,.0f%n", "allocatedBytesPerSecond", allocated / seconds);
+
+        if (writeBaseline != null) save(results, writeBaseline);
+        return baseline != null ? compare(results, load(baseline)) : EXIT_PASSED;
+    }
+
+    // Every metric in the baseline must be within the tolerance of its stored value
+    private int compare(Map<String, Double> results, Properties stored) {
+        int regressions = 0;
+        for (String name : stored.stringPropertyNames()) {
+            Double current = results.get(name);
+            if (current == null) continue;
+            double expected = Double.parseDouble(stored.getProperty(name));
+            boolean regressed;
+            if (expected == 0) {
+                // No percentage of zero makes sense, anything above a zero baseline (such as allocating at all) regresses
+                regressed = !name.equals(TICKS_PER_SECOND) && current > 0;
+                System.out.printf("%-24s %,.2f against a baseline of 0%s%n", name, current, regressed ? "  REGRESSED" : "");
+            } else {
+                double change = (current - expected) / expected * 100;
+                double worse = name.equals(TICKS_PER_SECOND) ? -change : change;
+                regressed = worse > tolerance;
+                System.out.printf("%-24s %+.1f%% against baseline%s%n", name, change, regressed ? "  REGRESSED" : "");
+            }
+            if (regressed) regressions++;
+        }
+        return regressions > 0 ? EXIT_REGRESSED : EXIT_PASSED;
+    }
+
+    // Bytes allocated by this thread, or -1 when the JVM cannot tell
+    private static long getAllocatedBytes(ThreadMXBean threads) {
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long getPeakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+
+    private static void save(Map<String, Double> results, File file) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            properties.setProperty(result.getKey(), Double.toString(result.getValue()));
+        }
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            properties.store(outputStream, "Cute Runner benchmark baseline");
+        }
+    }
+
+}
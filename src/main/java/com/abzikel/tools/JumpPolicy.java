@@ -0,0 +1,31 @@
+package com.abzikel.tools;
+
+import com.abzikel.engine.GameEngine;
+import com.abzikel.engine.Input;
+
+// Decides the input of every tick for an automated game, a new policy is created for each game
+public interface JumpPolicy {
+
+    Input decide(GameEngine engine);
+
+    // Never jumps, useful as a baseline for obstacle spacing
+    static JumpPolicy never() {
+        return engine -> Input.NONE;
+    }
+
+    // Jumps once the next obstacle is within the given distance of the character
+    static JumpPolicy atDistance(int distance) {
+        return engine -> {
+            int next = engine.distanceToNextObstacle();
+            return !engine.isJumping() && next >= 0 && next <= distance ? Input.JUMP : Input.NONE;
+        };
+    }
+
+    // Parses "never" or "distance:<pixels>"
+    static JumpPolicy parse(String name) {
+        if (name.equals("never")) return never();
+        if (name.startsWith("distance:")) return atDistance(Integer.parseInt(name.substring("distance:".length())));
+        throw new IllegalArgumentException("Unknown jump policy: " + name);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.abzikel.tools;
+
+import com.abzikel.engine.CollisionMasks;
+import com.abzikel.engine.GameEngine;
+import com.abzikel.engine.InputLog;
+import com.abzikel.engine.Replay;
+import com.abzikel.utils.AssetService;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ReplayTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayTool <replay file>...");
+            System.exit(2);
+        }
+
+        // Replays run headless, only the collision masks are needed
+        System.setProperty("java.awt.headless", "true");
+        CollisionMasks collisionMasks = AssetService.getInstance().getCollisionMasks();
+
+        for (String path : args) {
+            InputLog log = InputLog.load(new File(path));
+            long start = System.nanoTime();
+            GameEngine engine = Replay.run(log, collisionMasks, Long.MAX_VALUE);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%s: seed=%d ticks=%d dodged=%d %s (%.0f ticks/s)%n", path, log.getSeed(),
+                    engine.getTicks(), engine.getObstaclesDodged(), engine.hasWon() ? "won" : "lost",
+                    engine.getTicks() / Math.max(seconds, 1e-9));
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.abzikel.utils;
+
+import com.abzikel.engine.CollisionMask;
+import com.abzikel.engine.CollisionMasks;
+import com.abzikel.engine.GameEngine;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AssetService {
+    private static final AssetService INSTANCE = new AssetService();
+    // Every image the game uses, decoded in the background when the application starts
+    private static final String[] IMAGES = {
+            "/images/background_menu.png", "/images/background_game.png", "/images/obstacle.png"
+    };
+    // The death animation is only decoded when a game first needs it
+    private static final String[] SPRITE_NAMES = {"Idle", "Run", "Jump"};
+    private static final int[] SPRITE_COUNTS = {16, 20, 30};
+    // Decoded size of the preloaded sprites (66 frames of 416x454), below this budget they would only evict each other
+    private static final long SPRITE_PRELOAD_BYTES = 50L * 1024 * 1024;
+    // Decoded images in least recently used order, trimmed to the byte budget whenever a decode finishes
+    private final Map<String, CompletableFuture<BufferedImage>> images = new LinkedHashMap<>(128, 0.75f, true);
+    private final long budgetBytes = GameSettings.getAssetBudgetBytes();
+    private long bytes, hits, misses, evictions;
+    private final Map<GraphicsConfiguration, SpriteCache> spriteCaches = new ConcurrentHashMap<>();
+    private final List<Runnable> progressListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requested = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final ExecutorService executor;
+    private final SpriteAtlas atlas;
+    private volatile CollisionMasks collisionMasks;
+
+    private AssetService() {
+        // Daemon workers so a pending decode never keeps the application alive
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "CuteRunner-AssetLoader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Sprite frames are copied out of the packed atlas, anything else is decoded from its PNG file
+        atlas = GameSettings.isAtlasEnabled() ? SpriteAtlas.load() : null;
+    }
+
+    public static AssetService getInstance() {
+        return INSTANCE;
+    }
+
+    public void preloadAll() {
+        // Menu assets go first so the menu can show up as soon as possible
+        for (String path : IMAGES) load(path);
+        if (budgetBytes < SPRITE_PRELOAD_BYTES) return;
+        for (int index = 0; index < SPRITE_NAMES.length; index++) {
+            for (int frame = 1; frame <= SPRITE_COUNTS[index]; frame++) {
+                load(ImageUtil.spritePath(SPRITE_NAMES[index], frame));
+            }
+        }
+    }
+
+    // Starts decoding the image unless it is already cached or being decoded
+    public CompletableFuture<BufferedImage> load(String path) {
+        CompletableFuture<BufferedImage> future;
+        synchronized (images) {
+            future = images.get(path);
+            if (future != null) {
+                hits++;
+                return future;
+            }
+            misses++;
+            requested.incrementAndGet();
+            future = CompletableFuture.supplyAsync(() -> readImage(path), executor);
+            images.put(path, future);
+        }
+
+        CompletableFuture<BufferedImage> decoding = future;
+        future.whenComplete((image, error) -> {
+            if (image != null) imageDecoded(path, decoding, image);
+            completed.incrementAndGet();
+            progressListeners.forEach(Runnable::run);
+        });
+        return future;
+    }
+
+    private void imageDecoded(String path, CompletableFuture<BufferedImage> future, BufferedImage image) {
+        synchronized (images) {
+            // The cache may have been cleared while the image was decoded
+            if (images.get(path) != future) return;
+            bytes += sizeOf(image);
+
+            // Drop the least recently used decoded images, keeping the new one and those still decoding
+            Iterator<Map.Entry<String, CompletableFuture<BufferedImage>>> iterator = images.entrySet().iterator();
+            while (bytes > budgetBytes && iterator.hasNext()) {
+                Map.Entry<String, CompletableFuture<BufferedImage>> entry = iterator.next();
+                CompletableFuture<BufferedImage> cached = entry.getValue();
+                if (cached == future || !cached.isDone() || cached.isCompletedExceptionally()) continue;
+                bytes -= sizeOf(cached.join());
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private BufferedImage readImage(String path) {
+        BufferedImage packed = atlas != null ? atlas.readImage(path) : null;
+        return packed != null ? packed : ImageUtil.readImage(path);
+    }
+
+    // Forgets every decoded image, the next request decodes it again
+    public void clear() {
+        synchronized (images) {
+            images.clear();
+            bytes = 0;
+        }
+        requested.set(0);
+        completed.set(0);
+    }
+
+    // Waits for the decoded image, decoding it first if nobody requested it yet
+    public BufferedImage get(String path) {
+        try {
+            return load(path).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    // Sprite caches are shared by every window drawing on the same display
+    public SpriteCache getSpriteCache(GraphicsConfiguration configuration) {
+        if (configuration == null) return new SpriteCache(null);
+        return spriteCaches.computeIfAbsent(configuration, SpriteCache::new);
+    }
+
+    // Pixel masks of the character and obstacle sprites at their draw size, built once and shared
+    public CollisionMasks getCollisionMasks() {
+        CollisionMasks masks = collisionMasks;
+        if (masks != null) return masks;
+
+        synchronized (this) {
+            if (collisionMasks == null) {
+                int characterSize = GameEngine.CHARACTER_SIZE;
+                int obstacleSize = GameEngine.OBSTACLE_SIZE;
+                collisionMasks = new CollisionMasks(
+                        createMasks("Run", GameEngine.RUN_FRAMES, characterSize),
+                        createMasks("Jump", GameEngine.JUMP_FRAMES, characterSize),
+                        ImageUtil.createMask(get("/images/obstacle.png"), obstacleSize, obstacleSize)
+                );
+            }
+            return collisionMasks;
+        }
+    }
+
+    // Bytes of decoded images currently cached
+    public long getBytes() {
+        synchronized (images) {
+            return bytes;
+        }
+    }
+
+    public long getHits() {
+        synchronized (images) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (images) {
+            return misses;
+        }
+    }
+
+    public long getEvictions() {
+        synchronized (images) {
+            return evictions;
+        }
+    }
+
+    public boolean isLoaded() {
+        return completed.get() >= requested.get();
+    }
+
+    public float getProgress() {
+        int total = requested.get();
+        return total == 0 ? 1f : Math.min(1f, (float) completed.get() / total);
+    }
+
+    private CollisionMask[] createMasks(String spriteName, int spriteCount, int size) {
+        CollisionMask[] masks = new CollisionMask[spriteCount];
+        for (int index = 0; index < spriteCount; index++) {
+            masks[index] = ImageUtil.createMask(get(ImageUtil.spritePath(spriteName, index + 1)), size, size);
+        }
+        return masks;
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+
+    // Listeners are notified from the loader threads
+    public void addProgressListener(Runnable listener) {
+        progressListeners.add(listener);
+    }
+
+    public void removeProgressListener(Runnable listener) {
+        progressListeners.remove(listener);
+    }
+
+}
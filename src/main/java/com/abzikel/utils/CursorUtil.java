@@ -1,5 +1,7 @@
 package com.abzikel.utils;
 
+import com.abzikel.loop.TimingWheel;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -58,10 +60,16 @@ public class CursorUtil {
         component.addMouseListener(new MouseAdapter() {
             // Variable to record the time when the mouse is pressed
             private long pressTime;
+            // Reverts the cursor and triggers the action, a new press takes back the one still waiting
+            private final TimingWheel.Entry release = new TimingWheel.Entry(() -> {
+                applyNormalCursor(component);
+                triggerAction(action, component, actionCommand);
+            });
 
             @Override
             public void mousePressed(MouseEvent e) {
                 // Change the cursor to the "click" cursor and record the time of the press
+                UiScheduler.getInstance().cancel(release);
                 applyClickCursor(component);
                 pressTime = System.currentTimeMillis();
             }
@@ -73,17 +81,7 @@ public class CursorUtil {
 
                 if (elapsedTime < minPressDuration) {
                     // If the press duration is less than the minimum, wait for the remaining time
-                    long remainingTime = minPressDuration - elapsedTime;
-                    Timer timer = new Timer((int) remainingTime, event -> {
-                        // Change the cursor back to the normal cursor and trigger the action
-                        applyNormalCursor(component);
-                        triggerAction(action, component, actionCommand);
-                        ((Timer) event.getSource()).stop();
-                    });
-
-                    // Start time
-                    timer.setRepeats(false);
-                    timer.start();
+                    UiScheduler.getInstance().schedule(release, minPressDuration - elapsedTime);
                 } else {
                     // If the press duration is sufficient, immediately change the cursor back to normal
                     applyNormalCursor(component);
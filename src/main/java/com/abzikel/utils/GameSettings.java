@@ -0,0 +1,124 @@
+package com.abzikel.utils;
+
+import java.awt.*;
+
+public class GameSettings {
+    private static final String PREFIX = "cuterunner.";
+
+    // Draw from the game loop into a BufferStrategy instead of going through Swing repaints
+    public static boolean isActiveRendering() {
+        return "active".equalsIgnoreCase(getString("rendering", "passive"));
+    }
+
+    // Number of buffers used by active rendering, either 2 or 3
+    public static int getBufferCount() {
+        return Math.max(2, Math.min(3, getInt("buffers", 2)));
+    }
+
+    // How windows are shown: "fixed" at their design size, "resizable" or "fullscreen"
+    public static String getDisplayMode() {
+        String mode = getString("display", "fixed").toLowerCase();
+        return mode.equals("resizable") || mode.equals("fullscreen") ? mode : "fixed";
+    }
+
+    public static boolean isFixedWindow() {
+        return getDisplayMode().equals("fixed");
+    }
+
+    public static boolean isFullscreen() {
+        return getDisplayMode().equals("fullscreen");
+    }
+
+    // Resolution the game is drawn at before being scaled to a resizable or fullscreen window, as "<width>x<height>"
+    public static Dimension getRenderResolution(int defaultWidth, int defaultHeight) {
+        String[] size = getString("resolution", "").toLowerCase().split("x");
+        try {
+            if (size.length == 2) {
+                int width = Integer.parseInt(size[0].trim());
+                int height = Integer.parseInt(size[1].trim());
+                if (width > 0 && height > 0) return new Dimension(width, height);
+            }
+        } catch (NumberFormatException ignored) {
+            // Fall back to the default resolution
+        }
+        return new Dimension(defaultWidth, defaultHeight);
+    }
+
+    // Load sprite frames from the packed atlas when it is on the classpath instead of decoding every PNG
+    public static boolean isAtlasEnabled() {
+        return !"false".equalsIgnoreCase(getString("atlas", "true"));
+    }
+
+    // Folder the sprite atlas is extracted to when the game runs from a jar, so it can be memory-mapped
+    public static String getCacheDirectory() {
+        return getString("cache.dir", System.getProperty("user.home") + "/.cuterunner/cache");
+    }
+
+    // Memory for decoded source images, in megabytes, a quarter of the maximum heap by default
+    public static long getAssetBudgetBytes() {
+        return getMegabytes("assets.budget", Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    // Memory for sprites scaled to their draw size, in megabytes, an eighth of the maximum heap by default
+    public static long getSpriteBudgetBytes() {
+        return getMegabytes("sprites.budget", Runtime.getRuntime().maxMemory() / 8);
+    }
+
+    // Folder the frame-time histograms are written to when a session ends, empty to disable
+    public static String getStatsDirectory() {
+        return getString("stats.dir", System.getProperty("user.home") + "/.cuterunner/stats");
+    }
+
+    // Replay file that drives the game instead of the keyboard, empty to play normally
+    public static String getReplayFile() {
+        return getString("replay", "");
+    }
+
+    // Folder every finished session's input log is written to, empty to disable
+    public static String getReplayDirectory() {
+        return getString("replays.dir", System.getProperty("user.home") + "/.cuterunner/replays");
+    }
+
+    // File every finished run is appended to, empty to disable
+    public static String getScoreFile() {
+        return getString("scores", System.getProperty("user.home") + "/.cuterunner/scores.dat");
+    }
+
+    // Ghost racing: "host" to run the race on this machine, the host's address to join one, empty to play alone
+    public static String getGhostMode() {
+        return getString("ghost", "").trim();
+    }
+
+    public static int getGhostPort() {
+        return getInt("ghost.port", 47800);
+    }
+
+    // Folder every session's frames are captured to, empty to disable
+    public static String getCaptureDirectory() {
+        return getString("capture.dir", "");
+    }
+
+    // Captures are either an animated "gif" or a "png" sequence
+    public static String getCaptureFormat() {
+        return "png".equalsIgnoreCase(getString("capture.format", "gif")) ? "png" : "gif";
+    }
+
+    // Whether a frame is dropped instead of waiting when the capture encoders fall behind
+    public static boolean isCaptureBlocking() {
+        return "block".equalsIgnoreCase(getString("capture.policy", "drop"));
+    }
+
+    static String getString(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    static int getInt(String name, int defaultValue) {
+        return Integer.getInteger(PREFIX + name, defaultValue);
+    }
+
+    static long getMegabytes(String name, long defaultBytes) {
+        Integer megabytes = Integer.getInteger(PREFIX + name);
+        return megabytes != null ? Math.max(0, megabytes) * 1024L * 1024L : defaultBytes;
+    }
+
+}
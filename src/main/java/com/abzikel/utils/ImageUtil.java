@@ -1,23 +1,76 @@
 package com.abzikel.utils;
 
-import javax.swing.*;
+import com.abzikel.engine.CollisionMask;
+
+import javax.imageio.ImageIO;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Objects;
 
 public class ImageUtil {
 
+    static {
+        // Decode in memory instead of going through temporary files
+        ImageIO.setUseCache(false);
+    }
+
     public static void loadSprites(List<Image> spriteList, int spriteCount, String spriteName) {
+        // Request every frame first so they are decoded in parallel
+        AssetService assets = AssetService.getInstance();
+        for (int index = 1; index <= spriteCount; index++) {
+            assets.load(spritePath(spriteName, index));
+        }
         for (int index = 1; index <= spriteCount; index++) {
-            String path = String.format("/sprites/%s (%d).png", spriteName, index);
-            ImageIcon icon = new ImageIcon(Objects.requireNonNull(ImageUtil.class.getResource(path)));
-            spriteList.add(icon.getImage());
+            spriteList.add(assets.get(spritePath(spriteName, index)));
         }
     }
 
     public static Image loadImage(String path) {
-        // Load image from a specific path
-        return new ImageIcon(Objects.requireNonNull(ImageUtil.class.getResource(path))).getImage();
+        // Load image from a specific path, shared with every other user of the same path
+        return AssetService.getInstance().get(path);
+    }
+
+    // Builds the collision mask of an image drawn at the given size
+    public static CollisionMask createMask(Image image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+
+        // Half transparent pixels and above count as solid
+        int[] pixels = scaled.getRGB(0, 0, width, height, null, 0, width);
+        return CollisionMask.fromArgb(width, height, pixels, 128);
+    }
+
+    public static String spritePath(String spriteName, int index) {
+        return String.format("/sprites/%s (%d).png", spriteName, index);
+    }
+
+    static BufferedImage readImage(String path) {
+        // Decode the image without blocking on a MediaTracker
+        BufferedImage decoded;
+        try {
+            decoded = ImageIO.read(Objects.requireNonNull(ImageUtil.class.getResource(path)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error loading " + path, e);
+        }
+        if (decoded == null) throw new IllegalArgumentException("Unsupported image format: " + path);
+        return toPremultiplied(decoded);
+    }
+
+    // Converts to premultiplied integer pixels, the format Java2D blits fastest
+    public static BufferedImage toPremultiplied(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE) return image;
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = converted.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return converted;
     }
 
 }
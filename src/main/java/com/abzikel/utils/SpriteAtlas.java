@@ -0,0 +1,206 @@
+package com.abzikel.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Every sprite frame trimmed and packed into one page of premultiplied ARGB pixels, generated by the packAtlas task
+public class SpriteAtlas {
+    public static final String RESOURCE = "/atlas/sprites.atlas";
+    private static final int MAGIC = 0x43524154; // "CRAT"
+    private static final int VERSION = 2;
+    private static final Logger logger = Logger.getLogger(SpriteAtlas.class.getName());
+    private final Map<String, Frame> frames;
+    private final ByteBuffer pixels;
+    private final int pageWidth;
+
+    private SpriteAtlas(Map<String, Frame> frames, ByteBuffer pixels, int pageWidth) {
+        this.frames = frames;
+        this.pixels = pixels;
+        this.pageWidth = pageWidth;
+    }
+
+    // Where a frame sits in the page and where its trimmed pixels go in the original image
+    public static class Frame {
+        public final String path, animation;
+        public final int index, x, y, width, height;
+        public final int sourceWidth, sourceHeight, offsetX, offsetY;
+
+        public Frame(String path, String animation, int index, int x, int y, int width, int height,
+                     int sourceWidth, int sourceHeight, int offsetX, int offsetY) {
+            this.path = path;
+            this.animation = animation;
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+    }
+
+    // Maps the unpacked atlas page, or returns null so callers fall back to the loose PNG files
+    public static SpriteAtlas load() {
+        URL url = SpriteAtlas.class.getResource(RESOURCE);
+        if (url == null) return null;
+
+        try {
+            URLConnection connection = url.openConnection();
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16))) {
+                if (input.readInt() != MAGIC) throw new IOException("Not a sprite atlas");
+                int version = input.readInt();
+                if (version != VERSION) throw new IOException("Unsupported sprite atlas version " + version);
+
+                int pageWidth = input.readInt();
+                int pageHeight = input.readInt();
+                int count = input.readInt();
+                Map<String, Frame> frames = new HashMap<>(count * 2);
+                for (int index = 0; index < count; index++) {
+                    Frame frame = new Frame(input.readUTF(), input.readUTF(), input.readInt(),
+                            input.readInt(), input.readInt(), input.readInt(), input.readInt(),
+                            input.readInt(), input.readInt(), input.readInt(), input.readInt());
+                    frames.put(frame.path, frame);
+                }
+
+                // The deflated page follows the index
+                long pageBytes = 4L * pageWidth * pageHeight;
+                try (InputStream page = new InflaterInputStream(input)) {
+                    ByteBuffer pixels = unpack(connection, page, pageBytes);
+                    return new SpriteAtlas(Collections.unmodifiableMap(frames), pixels, pageWidth);
+                }
+            }
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            logger.log(Level.WARNING, "Error loading sprite atlas, decoding the PNG files instead", e);
+            return null;
+        }
+    }
+
+    // The page is inflated to a cache file once and that file is mapped by every later start
+    private static ByteBuffer unpack(URLConnection connection, InputStream page, long pageBytes) throws IOException {
+        try {
+            return map(extract(connection, page, pageBytes));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cannot cache the sprite atlas, unpacking it into memory", e);
+        }
+
+        // Without a cache file the page has to fit comfortably in the heap next to everything else
+        if (pageBytes > Runtime.getRuntime().maxMemory() / 4) {
+            throw new IOException("Sprite atlas page of " + pageBytes + " bytes does not fit in the heap");
+        }
+        byte[] bytes = new byte[(int) pageBytes];
+        new DataInputStream(page).readFully(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // The cache file is named after the packed atlas's size and time, a rebuilt atlas unpacks a new one
+    private static File extract(URLConnection connection, InputStream page, long pageBytes) throws IOException {
+        long length = connection.getContentLengthLong();
+        if (length < 0) throw new IOException("Unknown sprite atlas size");
+        File directory = new File(GameSettings.getCacheDirectory());
+        File file = new File(directory, "sprites-" + length + "-" + connection.getLastModified() + ".page");
+        if (file.length() == pageBytes) return file;
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Cannot create " + directory);
+
+        // Written under a temporary name so another process never maps a half-written page
+        File partial = File.createTempFile("sprites-", ".part", directory);
+        try {
+            Files.copy(page, partial.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (partial.length() != pageBytes) throw new IOException("Truncated sprite atlas");
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial.toPath());
+        }
+        return file;
+    }
+
+    public boolean contains(String path) {
+        return frames.containsKey(path);
+    }
+
+    public int size() {
+        return frames.size();
+    }
+
+    // Copies a frame into a new image of its original size, safe to call from several threads
+    public BufferedImage readImage(String path) {
+        Frame frame = frames.get(path);
+        if (frame == null) return null;
+
+        BufferedImage image = new BufferedImage(frame.sourceWidth, frame.sourceHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        WritableRaster raster = image.getRaster();
+        IntBuffer page = pixels.duplicate().asIntBuffer();
+        int[] row = new int[frame.width];
+        for (int line = 0; line < frame.height; line++) {
+            page.position((frame.y + line) * pageWidth + frame.x);
+            page.get(row);
+            raster.setDataElements(frame.offsetX, frame.offsetY + line, frame.width, 1, row);
+        }
+        return image;
+    }
+
+    // Index first, then the page row by row as big-endian premultiplied ARGB, deflated since most of it is transparent
+    public static void write(OutputStream outputStream, List<Frame> frames, int[] page, int pageWidth,
+                             int pageHeight) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(pageWidth);
+        data.writeInt(pageHeight);
+        data.writeInt(frames.size());
+        for (Frame frame : frames) {
+            data.writeUTF(frame.path);
+            data.writeUTF(frame.animation);
+            data.writeInt(frame.index);
+            data.writeInt(frame.x);
+            data.writeInt(frame.y);
+            data.writeInt(frame.width);
+            data.writeInt(frame.height);
+            data.writeInt(frame.sourceWidth);
+            data.writeInt(frame.sourceHeight);
+            data.writeInt(frame.offsetX);
+            data.writeInt(frame.offsetY);
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            DeflaterOutputStream deflated = new DeflaterOutputStream(data, deflater, 1 << 16);
+            ByteBuffer row = ByteBuffer.allocate(pageWidth * 4);
+            for (int line = 0; line < pageHeight; line++) {
+                row.clear();
+                row.asIntBuffer().put(page, line * pageWidth, pageWidth);
+                deflated.write(row.array());
+            }
+            deflated.finish();
+        } finally {
+            deflater.end();
+        }
+        data.flush();
+    }
+
+}
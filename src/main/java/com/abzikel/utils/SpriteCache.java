@@ -0,0 +1,218 @@
+package com.abzikel.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class SpriteCache {
+    private final GraphicsConfiguration configuration;
+    private final long budgetBytes;
+    private final Map<String, Animation> entries = new LinkedHashMap<>();
+    private long bytes, hits, misses, evictions;
+
+    // The configuration may be null when running headless, images are then plain ARGB buffers
+    public SpriteCache(GraphicsConfiguration configuration) {
+        this(configuration, GameSettings.getSpriteBudgetBytes());
+    }
+
+    public SpriteCache(GraphicsConfiguration configuration, long budgetBytes) {
+        this.configuration = configuration;
+        this.budgetBytes = budgetBytes;
+    }
+
+    // Scaled frames of an animation (or a single image), dropped when the cache is over budget and rebuilt in the background
+    public class Animation {
+        private final String name;
+        private final String spriteName, path; // Only one of them is set
+        private final int count, width, height;
+        private volatile Image[] frames;
+        private volatile long lastUsed;
+        private volatile boolean reloading;
+        private Image lastFrame; // Only touched by the thread drawing the animation
+        private long bytes;
+
+        private Animation(String name, String spriteName, String path, int count, int width, int height) {
+            this.name = name;
+            this.spriteName = spriteName;
+            this.path = path;
+            this.count = count;
+            this.width = width;
+            this.height = height;
+        }
+
+        // Never decodes on the calling thread, while dropped frames are rebuilt it returns the last frame it handed out
+        public Image frame(int index) {
+            lastUsed = System.nanoTime();
+            Image[] current = frames;
+            if (current == null) {
+                prefetch();
+                return lastFrame;
+            }
+            return lastFrame = current[index];
+        }
+
+        // Starts rebuilding the frames in the background if the cache dropped them
+        public void prefetch() {
+            if (frames != null || reloading) return;
+            reloading = true;
+            CompletableFuture.runAsync(() -> {
+                try {
+                    reload(this);
+                } finally {
+                    reloading = false;
+                }
+            });
+        }
+
+        public int length() {
+            return count;
+        }
+    }
+
+    // A width or height of 0 keeps the size of the source frames
+    public synchronized Animation loadAnimation(String spriteName, int spriteCount, int width, int height) {
+        return lookup(spriteName + " " + width + "x" + height, spriteName, null, spriteCount, width, height);
+    }
+
+    public synchronized Image loadImage(String path, int width, int height) {
+        return lookup(path + " " + width + "x" + height, null, path, 1, width, height).frame(0);
+    }
+
+    private Animation lookup(String key, String spriteName, String path, int count, int width, int height) {
+        Animation animation = entries.get(key);
+        if (animation == null) {
+            animation = new Animation(key, spriteName, path, count, width, height);
+            entries.put(key, animation);
+        }
+
+        // Frames are loaded right away so the first draw does not have to
+        if (animation.frames != null) {
+            hits++;
+            animation.lastUsed = System.nanoTime();
+        } else {
+            reload(animation);
+        }
+        return animation;
+    }
+
+    // Names of the cached images the display cannot currently draw with hardware acceleration
+    public synchronized List<String> getUnacceleratedImages() {
+        List<String> unaccelerated = new ArrayList<>();
+        for (Animation animation : entries.values()) {
+            Image[] frames = animation.frames;
+            if (frames == null) continue;
+            for (int index = 0; index < frames.length; index++) {
+                if (configuration == null || !frames[index].getCapabilities(configuration).isAccelerated()) {
+                    unaccelerated.add(animation.count == 1 ? animation.name : animation.name + " #" + (index + 1));
+                }
+            }
+        }
+        return unaccelerated;
+    }
+
+    // Number of images currently cached
+    public synchronized int size() {
+        int size = 0;
+        for (Animation animation : entries.values()) {
+            if (animation.frames != null) size += animation.count;
+        }
+        return size;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    // Lookups that found their frames cached, uses of an already loaded animation are not counted
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    // Lookups and uses that had to decode and scale the frames
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // Create an image in the format the display draws fastest
+    public BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        if (configuration != null) return configuration.createCompatibleImage(width, height, transparency);
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                ? BufferedImage.TYPE_INT_RGB
+                : BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    private synchronized Image[] reload(Animation animation) {
+        // Another thread may have rebuilt the frames while this one waited
+        Image[] frames = animation.frames;
+        if (frames != null) return frames;
+        misses++;
+
+        // Decode the frames and keep them already scaled to their draw size
+        List<Image> sources = new ArrayList<>();
+        if (animation.spriteName != null) {
+            ImageUtil.loadSprites(sources, animation.count, animation.spriteName);
+        } else {
+            sources.add(ImageUtil.loadImage(animation.path));
+        }
+
+        frames = new Image[sources.size()];
+        long size = 0;
+        for (int index = 0; index < frames.length; index++) {
+            BufferedImage scaled = scale(sources.get(index), animation.width, animation.height);
+            size += 4L * scaled.getWidth() * scaled.getHeight();
+            frames[index] = scaled;
+        }
+        animation.bytes = size;
+        animation.lastUsed = System.nanoTime();
+        animation.frames = frames;
+        bytes += size;
+        evictOverBudget(animation);
+        return frames;
+    }
+
+    // Drops the least recently used animations until the cache fits its budget again, never the one just loaded
+    private void evictOverBudget(Animation loaded) {
+        while (bytes > budgetBytes) {
+            Animation oldest = null;
+            for (Animation animation : entries.values()) {
+                if (animation == loaded || animation.frames == null) continue;
+                if (oldest == null || animation.lastUsed < oldest.lastUsed) oldest = animation;
+            }
+            if (oldest == null) return;
+
+            oldest.frames = null;
+            bytes -= oldest.bytes;
+            evictions++;
+        }
+    }
+
+    private BufferedImage scale(Image source, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            width = source.getWidth(null);
+            height = source.getHeight(null);
+        }
+        BufferedImage scaled = createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+
+        // Scale with good quality once instead of on every frame
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+}
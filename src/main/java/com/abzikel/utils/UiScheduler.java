@@ -0,0 +1,117 @@
+package com.abzikel.utils;
+
+import com.abzikel.loop.TimingWheel;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Delayed and repeating UI actions on one clock thread, whatever comes due in a tick reaches the EDT as one batch
+public class UiScheduler implements Runnable {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // A turn of the wheel covers 2.56 s, enough for every delay the UI uses
+    private static final int SLOTS = 256;
+    // Created after the constants above, the constructor reads them
+    private static final UiScheduler INSTANCE = new UiScheduler();
+    private final TimingWheel wheel = new TimingWheel(TICK_NANOS, SLOTS, System.nanoTime());
+    private final List<TimingWheel.Entry> expired = new ArrayList<>();
+    // Entries waiting for the EDT, a repeating one that is still waiting is not queued twice
+    private final Set<TimingWheel.Entry> due = new LinkedHashSet<>();
+    private boolean dispatchPosted;
+    private Thread thread;
+
+    private UiScheduler() {
+    }
+
+    public static UiScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    // Runs the entry's action on the EDT once, scheduling it again moves it to the new deadline
+    public void schedule(TimingWheel.Entry entry, long delayMillis) {
+        schedule(entry, delayMillis, 0);
+    }
+
+    public void scheduleAtFixedRate(TimingWheel.Entry entry, long initialDelayMillis, long periodMillis) {
+        schedule(entry, initialDelayMillis, Math.max(1, periodMillis));
+    }
+
+    // Once this returns on the EDT the action will not run, even if it already came due
+    public synchronized void cancel(TimingWheel.Entry entry) {
+        wheel.cancel(entry);
+        due.remove(entry);
+    }
+
+    public synchronized boolean isScheduled(TimingWheel.Entry entry) {
+        return entry.isScheduled() || due.contains(entry);
+    }
+
+    private synchronized void schedule(TimingWheel.Entry entry, long delayMillis, long periodMillis) {
+        due.remove(entry);
+        wheel.schedule(entry, System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(delayMillis),
+                TimeUnit.MILLISECONDS.toNanos(periodMillis));
+
+        // The clock thread starts with the first entry and sleeps whenever the wheel is empty
+        if (thread == null) {
+            thread = new Thread(this, "CuteRunner-UiClock");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void run() {
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                wheel.advance(now, expired);
+                if (!expired.isEmpty()) {
+                    due.addAll(expired);
+                    expired.clear();
+                    if (!dispatchPosted) {
+                        dispatchPosted = true;
+                        SwingUtilities.invokeLater(this::dispatch);
+                    }
+                }
+
+                if (wheel.isEmpty()) wait();
+                else TimeUnit.NANOSECONDS.timedWait(this, wheel.nanosUntilNextTick(now));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on the EDT, entries are taken one at a time so an action can still cancel the ones after it
+    private void dispatch() {
+        int count;
+        synchronized (this) {
+            count = due.size();
+        }
+
+        // Only what was due when the batch started, anything later waits for the next batch
+        try {
+            for (int index = 0; index < count; index++) {
+                TimingWheel.Entry entry;
+                synchronized (this) {
+                    Iterator<TimingWheel.Entry> iterator = due.iterator();
+                    if (!iterator.hasNext()) break;
+                    entry = iterator.next();
+                    iterator.remove();
+                }
+                entry.getAction().run();
+            }
+        } finally {
+            synchronized (this) {
+                dispatchPosted = !due.isEmpty();
+                if (dispatchPosted) SwingUtilities.invokeLater(this::dispatch);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.abzikel.utils;
+
+import javax.swing.*;
+import java.awt.*;
+
+public class WindowUtil {
+
+    // Applies the configured display mode, the frame is shown afterwards with show()
+    public static void configure(JFrame frame, int width, int height) {
+        frame.setSize(width, height);
+        frame.setMinimumSize(new Dimension(width, height));
+        frame.setResizable(!GameSettings.isFixedWindow());
+        if (GameSettings.isFullscreen()) frame.setUndecorated(true);
+        frame.setLocationRelativeTo(null);
+    }
+
+    public static void show(JFrame frame) {
+        if (!GameSettings.isFullscreen()) {
+            frame.setVisible(true);
+            return;
+        }
+
+        // Exclusive fullscreen when the device supports it, otherwise a maximized borderless window
+        GraphicsDevice device = frame.getGraphicsConfiguration().getDevice();
+        if (device.isFullScreenSupported()) {
+            device.setFullScreenWindow(frame);
+        } else {
+            frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
+            frame.setVisible(true);
+        }
+    }
+
+    // Hides the frame but keeps it and its native resources around to be shown again
+    public static void hide(JFrame frame) {
+        GraphicsDevice device = frame.getGraphicsConfiguration().getDevice();
+        if (device.getFullScreenWindow() == frame) device.setFullScreenWindow(null);
+        frame.setVisible(false);
+    }
+
+}